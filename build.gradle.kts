@@ -10,13 +10,27 @@ repositories {
     mavenCentral()
     maven("https://repo.papermc.io/repository/maven-public/")
     maven("https://maven.enginehub.org/repo/")
+    maven("https://repo.codemc.io/repository/maven-releases/")
+}
+
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
 }
 
 dependencies {
     compileOnly("io.papermc.paper:paper-api:1.21.8-R0.1-SNAPSHOT")
     compileOnly("com.sk89q.worldguard:worldguard-bukkit:7.0.14")
+    // Optional, only used when packet-injection is enabled and PacketEvents is installed
+    compileOnly("com.github.retrooper:packetevents-spigot:2.9.4")
 
     implementation("org.jetbrains:annotations:24.1.0")
+
+    // Headless load test harness, not part of the plugin jar
+    "loadtestImplementation"("io.papermc.paper:paper-api:1.21.8-R0.1-SNAPSHOT")
+    "loadtestImplementation"("com.sk89q.worldguard:worldguard-bukkit:7.0.14")
+    "loadtestImplementation"("org.mockbukkit.mockbukkit:mockbukkit-v1.21:4.72.2")
+    "loadtestImplementation"("org.jetbrains:annotations:24.1.0")
 }
 
 java {
@@ -41,4 +55,20 @@ tasks {
     build {
         dependsOn(shadowJar)
     }
+
+    register<JavaExec>("loadTest") {
+        group = "verification"
+        description = "Runs the headless load test. Pass settings with --args=\"players=300 regions=5000\"."
+        classpath = loadtest.runtimeClasspath
+        mainClass.set("loganintech.regionforcefield.loadtest.LoadTestRunner")
+        jvmArgs("-Xmx4G")
+    }
+
+    register<JavaExec>("replayTrace") {
+        group = "verification"
+        description = "Replays a recorded movement trace. Pass it with --args=\"trace=path/to/trace.fftrace\"."
+        classpath = loadtest.runtimeClasspath
+        mainClass.set("loganintech.regionforcefield.loadtest.TraceReplayRunner")
+        jvmArgs("-Xmx4G")
+    }
 }
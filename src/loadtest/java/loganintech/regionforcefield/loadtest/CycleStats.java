@@ -0,0 +1,122 @@
+package loganintech.regionforcefield.loadtest;
+
+import loganintech.regionforcefield.task.ForcefieldUpdateTask;
+import org.jetbrains.annotations.NotNull;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Runs measured update cycles and reports wall time, allocations and packet counts over all of them.
+ */
+public class CycleStats {
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final boolean verbose;
+    private long[] wallNanos = new long[64];
+    private long[] allocatedBytes = new long[64];
+    private long[] blocksSent = new long[64];
+    private long[] particlesSent = new long[64];
+    private int cycles;
+
+    public CycleStats(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Runs one update cycle plus the tick after it and counts what it sent to the players.
+     *
+     * @param task    the update task
+     * @param server  the mock server
+     * @param players the players to count packets for
+     * @param measure false for warmup cycles, which are run but not recorded
+     */
+    public void runCycle(@NotNull ForcefieldUpdateTask task, @NotNull ServerMock server,
+                         @NotNull Collection<SimulatedPlayer> players, boolean measure) {
+        long allocatedBefore = totalAllocatedBytes();
+        long start = System.nanoTime();
+        task.runCycle();
+        // Deliver anything the cycle queued for the next tick, e.g. re-sent blocks
+        server.getScheduler().performOneTick();
+        long elapsed = System.nanoTime() - start;
+        long allocated = totalAllocatedBytes() - allocatedBefore;
+
+        long blocks = 0;
+        long particles = 0;
+        for (SimulatedPlayer player : players) {
+            blocks += player.drainBlocksSent();
+            particles += player.drainParticlesSent();
+        }
+
+        if (!measure) {
+            return;
+        }
+        if (cycles == wallNanos.length) {
+            wallNanos = Arrays.copyOf(wallNanos, cycles * 2);
+            allocatedBytes = Arrays.copyOf(allocatedBytes, cycles * 2);
+            blocksSent = Arrays.copyOf(blocksSent, cycles * 2);
+            particlesSent = Arrays.copyOf(particlesSent, cycles * 2);
+        }
+        wallNanos[cycles] = elapsed;
+        allocatedBytes[cycles] = allocated;
+        blocksSent[cycles] = blocks;
+        particlesSent[cycles] = particles;
+
+        if (verbose) {
+            System.out.printf("cycle %4d: %8.2f ms, %8.2f MB allocated, %9d blocks, %10d particles%n",
+                cycles, elapsed / 1_000_000.0, allocated / 1_048_576.0, blocks, particles);
+        }
+        cycles++;
+    }
+
+    /**
+     * Prints the summary of all measured cycles.
+     */
+    public void report() {
+        if (cycles == 0) {
+            System.out.println("No cycles were measured");
+            return;
+        }
+
+        long[] wall = Arrays.copyOf(wallNanos, cycles);
+        long[] allocated = Arrays.copyOf(allocatedBytes, cycles);
+        long[] blocks = Arrays.copyOf(blocksSent, cycles);
+        long[] particles = Arrays.copyOf(particlesSent, cycles);
+        long[] sorted = wall.clone();
+        Arrays.sort(sorted);
+        long totalWall = Arrays.stream(wall).sum();
+        long totalAllocated = Arrays.stream(allocated).sum();
+
+        System.out.println("=== Results over " + cycles + " cycles ===");
+        System.out.printf("Cycle time:   avg %.2f ms, p50 %.2f ms, p95 %.2f ms, max %.2f ms%n",
+            totalWall / 1_000_000.0 / cycles,
+            percentile(sorted, 0.50) / 1_000_000.0,
+            percentile(sorted, 0.95) / 1_000_000.0,
+            sorted[sorted.length - 1] / 1_000_000.0);
+        System.out.printf("Allocations:  avg %.2f MB/cycle, %.1f MB/s of cycle time%n",
+            totalAllocated / 1_048_576.0 / cycles,
+            totalWall > 0 ? totalAllocated / 1_048_576.0 / (totalWall / 1_000_000_000.0) : 0);
+        System.out.printf("Blocks sent:  avg %.0f/cycle, max %d%n",
+            Arrays.stream(blocks).average().orElse(0), Arrays.stream(blocks).max().orElse(0));
+        System.out.printf("Particles:    avg %.0f/cycle, max %d%n",
+            Arrays.stream(particles).average().orElse(0), Arrays.stream(particles).max().orElse(0));
+    }
+
+    private long totalAllocatedBytes() {
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
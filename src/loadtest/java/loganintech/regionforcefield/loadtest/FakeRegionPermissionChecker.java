@@ -0,0 +1,78 @@
+package loganintech.regionforcefield.loadtest;
+
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.region.AccessClassIndex;
+import loganintech.regionforcefield.region.RegionPermissionChecker;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Permission checker backed by in-memory regions instead of a running WorldGuard.
+ * Simulated players are never members, so every ENTRY-deny region is blocked.
+ */
+public class FakeRegionPermissionChecker extends RegionPermissionChecker {
+
+    private final Map<String, List<ProtectedRegion>> regionsByWorld = new HashMap<>();
+
+    public FakeRegionPermissionChecker(@NotNull RegionForcefieldPlugin plugin) {
+        super(plugin);
+    }
+
+    /**
+     * Adds a region to a world.
+     *
+     * @param world  the world
+     * @param region the region
+     */
+    public void addRegion(@NotNull World world, @NotNull ProtectedRegion region) {
+        regionsByWorld.computeIfAbsent(world.getName(), k -> new ArrayList<>()).add(region);
+    }
+
+    /**
+     * Gets all regions of a world.
+     *
+     * @param world the world
+     * @return the regions
+     */
+    @NotNull
+    public List<ProtectedRegion> getRegions(@NotNull World world) {
+        return regionsByWorld.getOrDefault(world.getName(), List.of());
+    }
+
+    @NotNull
+    @Override
+    public List<ProtectedRegion> getEntryDeniedRegions(@NotNull World world) {
+        List<ProtectedRegion> deniedRegions = new ArrayList<>();
+        for (ProtectedRegion region : getRegions(world)) {
+            if (region.getFlag(Flags.ENTRY) == StateFlag.State.DENY) {
+                deniedRegions.add(region);
+            }
+        }
+        return deniedRegions;
+    }
+
+    @NotNull
+    @Override
+    public Set<ProtectedRegion> getBlockedRegions(@NotNull Player player, @NotNull Collection<ProtectedRegion> deniedRegions) {
+        return new HashSet<>(deniedRegions);
+    }
+
+    @NotNull
+    @Override
+    protected Set<String> getBypassedRegionIds(@NotNull Player player, @NotNull AccessClassIndex accessClasses) {
+        return Collections.emptySet();
+    }
+}
@@ -0,0 +1,114 @@
+package loganintech.regionforcefield.loadtest;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for a load test run, parsed from {@code key=value} arguments.
+ */
+public class LoadTestConfig {
+
+    /**
+     * How simulated players move between cycles.
+     */
+    public enum PathType {
+        /** Walk back and forth along a straight line. */
+        LINE,
+        /** Orbit around a fixed point. */
+        CIRCLE,
+        /** Take random steps. */
+        RANDOM
+    }
+
+    final int players;
+    final int regions;
+    final int cycles;
+    final int warmupCycles;
+    final int worlds;
+    final int worldSize;
+    final int minRegionSize;
+    final int maxRegionSize;
+    final int minRegionY;
+    final int maxRegionY;
+    final double polygonRatio;
+    final int polygonVertices;
+    final double denyRatio;
+    final PathType path;
+    final double speed;
+    final long seed;
+    final boolean verbose;
+
+    private LoadTestConfig(@NotNull Map<String, String> values) {
+        this.players = intValue(values, "players", 200);
+        this.regions = intValue(values, "regions", 2000);
+        this.cycles = intValue(values, "cycles", 50);
+        this.warmupCycles = intValue(values, "warmup", 5);
+        this.worlds = intValue(values, "worlds", 1);
+        this.worldSize = intValue(values, "world-size", 2000);
+        this.minRegionSize = intValue(values, "min-region-size", 8);
+        this.maxRegionSize = intValue(values, "max-region-size", 64);
+        this.minRegionY = intValue(values, "min-region-y", 50);
+        this.maxRegionY = intValue(values, "max-region-y", 90);
+        this.polygonRatio = doubleValue(values, "polygon-ratio", 0.2);
+        this.polygonVertices = intValue(values, "polygon-vertices", 8);
+        this.denyRatio = doubleValue(values, "deny-ratio", 0.5);
+        this.path = PathType.valueOf(values.getOrDefault("path", "line").toUpperCase());
+        this.speed = doubleValue(values, "speed", 4.0);
+        this.seed = Long.parseLong(values.getOrDefault("seed", "42"));
+        this.verbose = Boolean.parseBoolean(values.getOrDefault("verbose", "false"));
+
+        if (cycles < 1 || worlds < 1 || polygonVertices < 3) {
+            throw new IllegalArgumentException("cycles and worlds must be at least 1 and polygon-vertices at least 3");
+        }
+    }
+
+    /**
+     * Parses command line arguments of the form {@code key=value}.
+     *
+     * @param args the arguments
+     * @return the parsed config
+     */
+    @NotNull
+    public static LoadTestConfig parse(@NotNull String[] args) {
+        return new LoadTestConfig(parseArguments(args));
+    }
+
+    /**
+     * Splits command line arguments of the form {@code key=value} into a map with lowercase keys.
+     *
+     * @param args the arguments
+     * @return the values by key
+     */
+    @NotNull
+    static Map<String, String> parseArguments(@NotNull String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got '" + arg + "'");
+            }
+            values.put(arg.substring(0, separator).toLowerCase(), arg.substring(separator + 1));
+        }
+        return values;
+    }
+
+    private static int intValue(@NotNull Map<String, String> values, @NotNull String key, int def) {
+        String value = values.get(key);
+        return value != null ? Integer.parseInt(value) : def;
+    }
+
+    private static double doubleValue(@NotNull Map<String, String> values, @NotNull String key, double def) {
+        String value = values.get(key);
+        return value != null ? Double.parseDouble(value) : def;
+    }
+
+    @Override
+    public String toString() {
+        return "players=" + players + " regions=" + regions + " cycles=" + cycles + " worlds=" + worlds +
+            " world-size=" + worldSize + " region-size=" + minRegionSize + ".." + maxRegionSize +
+            " region-y=" + minRegionY + ".." + maxRegionY + " polygon-ratio=" + polygonRatio +
+            " deny-ratio=" + denyRatio + " path=" + path.name().toLowerCase() + " speed=" + speed;
+    }
+}
@@ -0,0 +1,141 @@
+package loganintech.regionforcefield.loadtest;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.task.ForcefieldUpdateTask;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless load test that runs {@link ForcefieldUpdateTask} against simulated players and regions
+ * and reports per-cycle wall time, allocations and packet counts.
+ * <p>
+ * Run with {@code ./gradlew loadTest --args="players=300 regions=5000 cycles=100"}.
+ */
+public final class LoadTestRunner {
+
+    private static final int MIN_HEIGHT = -64;
+    private static final int MAX_HEIGHT = 320;
+    private static final int GROUND_HEIGHT = 64;
+
+    private final LoadTestConfig config;
+    private final ServerMock server;
+    private final Random random;
+    private final List<SimulatedWorld> worlds = new ArrayList<>();
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+
+    private LoadTestRunner(@NotNull LoadTestConfig config, @NotNull ServerMock server) {
+        this.config = config;
+        this.server = server;
+        this.random = new Random(config.seed);
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        ServerMock server = MockBukkit.mock();
+        try {
+            new LoadTestRunner(config, server).run();
+        } finally {
+            MockBukkit.unmock();
+        }
+    }
+
+    private void run() {
+        System.out.println("Load test: " + config);
+
+        // The plugin only checks that a plugin named WorldGuard is present
+        MockBukkit.createMockPlugin("WorldGuard");
+        RegionForcefieldPlugin plugin = MockBukkit.load(RegionForcefieldPlugin.class);
+        plugin.setDebug(false);
+
+        // Cycles are driven manually below
+        plugin.getUpdateTask().cancel();
+
+        FakeRegionPermissionChecker checker = new FakeRegionPermissionChecker(plugin);
+        for (int i = 0; i < config.worlds; i++) {
+            SimulatedWorld world = new SimulatedWorld("world-" + i, MIN_HEIGHT, MAX_HEIGHT, GROUND_HEIGHT);
+            server.addWorld(world);
+            worlds.add(world);
+        }
+        createRegions(checker);
+        createPlayers();
+
+        ForcefieldUpdateTask task = new ForcefieldUpdateTask(plugin, checker, plugin.getForcefieldRenderer());
+        CycleStats stats = new CycleStats(config.verbose);
+
+        int totalCycles = config.warmupCycles + config.cycles;
+        for (int cycle = 0; cycle < totalCycles; cycle++) {
+            for (SimulatedPlayer player : players) {
+                player.move();
+            }
+            stats.runCycle(task, server, players, cycle >= config.warmupCycles);
+        }
+
+        task.shutdown();
+        stats.report();
+    }
+
+    private void createRegions(@NotNull FakeRegionPermissionChecker checker) {
+        int half = config.worldSize / 2;
+        int denied = 0;
+
+        for (int i = 0; i < config.regions; i++) {
+            SimulatedWorld world = worlds.get(i % worlds.size());
+            int size = config.minRegionSize + random.nextInt(Math.max(1, config.maxRegionSize - config.minRegionSize + 1));
+            int centerX = random.nextInt(config.worldSize) - half;
+            int centerZ = random.nextInt(config.worldSize) - half;
+
+            ProtectedRegion region;
+            if (random.nextDouble() < config.polygonRatio) {
+                List<BlockVector2> points = new ArrayList<>();
+                for (int v = 0; v < config.polygonVertices; v++) {
+                    double angle = Math.PI * 2 * v / config.polygonVertices;
+                    double radius = size / 2.0 * (0.5 + random.nextDouble() * 0.5);
+                    points.add(BlockVector2.at(centerX + Math.cos(angle) * radius, centerZ + Math.sin(angle) * radius));
+                }
+                region = new ProtectedPolygonalRegion("region-" + i, points, config.minRegionY, config.maxRegionY);
+            } else {
+                int sizeZ = config.minRegionSize + random.nextInt(Math.max(1, config.maxRegionSize - config.minRegionSize + 1));
+                region = new ProtectedCuboidRegion("region-" + i,
+                    BlockVector3.at(centerX - size / 2, config.minRegionY, centerZ - sizeZ / 2),
+                    BlockVector3.at(centerX + size / 2, config.maxRegionY, centerZ + sizeZ / 2));
+            }
+
+            if (random.nextDouble() < config.denyRatio) {
+                region.setFlag(Flags.ENTRY, StateFlag.State.DENY);
+                denied++;
+            }
+            checker.addRegion(world, region);
+        }
+
+        System.out.println("Created " + config.regions + " regions (" + denied + " with entry deny) in " +
+            worlds.size() + " world(s)");
+    }
+
+    private void createPlayers() {
+        int half = config.worldSize / 2;
+        for (int i = 0; i < config.players; i++) {
+            SimulatedWorld world = worlds.get(i % worlds.size());
+            Location origin = new Location(world,
+                random.nextInt(config.worldSize) - half + 0.5,
+                GROUND_HEIGHT + 1,
+                random.nextInt(config.worldSize) - half + 0.5);
+            SimulatedPlayer player = new SimulatedPlayer(server, "player" + i, origin, config.path, config.speed,
+                random.nextLong());
+            server.addPlayer(player);
+            players.add(player);
+        }
+    }
+}
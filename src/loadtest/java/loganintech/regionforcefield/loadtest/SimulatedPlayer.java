@@ -0,0 +1,126 @@
+package loganintech.regionforcefield.loadtest;
+
+import com.destroystokyo.paper.ClientOption;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A mock player that follows a scripted path and counts the packets the plugin sends it.
+ */
+public class SimulatedPlayer extends PlayerMock {
+
+    private final LoadTestConfig.PathType path;
+    private final double speed;
+    private final Random random;
+    private final Location origin;
+    private final double heading;
+    private long blocksSent;
+    private long particlesSent;
+    private int step;
+
+    public SimulatedPlayer(@NotNull ServerMock server, @NotNull String name, @NotNull Location origin,
+                           @NotNull LoadTestConfig.PathType path, double speed, long seed) {
+        super(server, name, UUID.nameUUIDFromBytes(name.getBytes()));
+        this.path = path;
+        this.speed = speed;
+        this.random = new Random(seed);
+        this.origin = origin.clone();
+        this.heading = random.nextDouble() * Math.PI * 2;
+        setLocation(origin.clone());
+    }
+
+    /**
+     * Creates a player that stays where it is put, e.g. to replay a recorded trace.
+     */
+    public SimulatedPlayer(@NotNull ServerMock server, @NotNull String name, @NotNull Location origin) {
+        this(server, name, origin, LoadTestConfig.PathType.LINE, 0, 0);
+    }
+
+    /**
+     * Moves the player one step along their path.
+     */
+    public void move() {
+        step++;
+        Location location = getLocation();
+        switch (path) {
+            case LINE -> {
+                // Walk out for 50 steps, then back again
+                int leg = step % 100;
+                double distance = (leg < 50 ? leg : 100 - leg) * speed;
+                location.setX(origin.getX() + Math.cos(heading) * distance);
+                location.setZ(origin.getZ() + Math.sin(heading) * distance);
+            }
+            case CIRCLE -> {
+                double radius = speed * 10;
+                double angle = heading + step * speed / radius;
+                location.setX(origin.getX() + Math.cos(angle) * radius);
+                location.setZ(origin.getZ() + Math.sin(angle) * radius);
+            }
+            case RANDOM -> {
+                double angle = random.nextDouble() * Math.PI * 2;
+                location.add(Math.cos(angle) * speed, 0, Math.sin(angle) * speed);
+            }
+        }
+        setLocation(location);
+    }
+
+    @Override
+    public void sendBlockChange(@NotNull Location location, @NotNull BlockData block) {
+        blocksSent++;
+    }
+
+    @Override
+    public <T> void spawnParticle(@NotNull Particle particle, @NotNull Location location, int count,
+                                  double offsetX, double offsetY, double offsetZ, double extra, T data) {
+        particlesSent++;
+    }
+
+    @Override
+    public boolean isChunkSent(long chunkKey) {
+        return true;
+    }
+
+    /**
+     * Simulated clients show every particle and see as far as the server sends.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getClientOption(@NotNull ClientOption<T> option) {
+        if (option == ClientOption.PARTICLE_VISIBILITY) {
+            return (T) ClientOption.ParticleVisibility.ALL;
+        }
+        if (option == ClientOption.VIEW_DISTANCE) {
+            return (T) Integer.valueOf(32);
+        }
+        return super.getClientOption(option);
+    }
+
+    /**
+     * Returns and resets the number of block changes sent since the last call.
+     *
+     * @return block changes sent
+     */
+    public long drainBlocksSent() {
+        long sent = blocksSent;
+        blocksSent = 0;
+        return sent;
+    }
+
+    /**
+     * Returns and resets the number of particle packets sent since the last call.
+     *
+     * @return particle packets sent
+     */
+    public long drainParticlesSent() {
+        long sent = particlesSent;
+        particlesSent = 0;
+        return sent;
+    }
+}
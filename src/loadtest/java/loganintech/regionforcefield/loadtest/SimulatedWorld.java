@@ -0,0 +1,21 @@
+package loganintech.regionforcefield.loadtest;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+/**
+ * A flat mock world where every chunk counts as loaded, like the area around online players.
+ */
+public class SimulatedWorld extends WorldMock {
+
+    public SimulatedWorld(@NotNull String name, int minHeight, int maxHeight, int groundHeight) {
+        super(Material.STONE, minHeight, maxHeight, groundHeight);
+        setName(name);
+    }
+
+    @Override
+    public boolean isChunkLoaded(int x, int z) {
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+package loganintech.regionforcefield.loadtest;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.profile.TraceFormat;
+import loganintech.regionforcefield.region.ForcefieldFlags;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams the cycles of a movement trace recorded with {@code /forcefield trace}.
+ * See {@link TraceFormat} for the layout.
+ */
+public class TraceReader implements Closeable {
+
+    private final DataInputStream in;
+    private final long startMillis;
+    private final int intervalTicks;
+    private boolean ended;
+
+    /**
+     * Opens a trace and reads its header.
+     *
+     * @param path the trace file
+     * @throws IOException if the file can't be read or isn't a trace
+     */
+    public TraceReader(@NotNull Path path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 65536)));
+        if (in.readInt() != TraceFormat.MAGIC) {
+            in.close();
+            throw new IOException(path + " is not a forcefield trace");
+        }
+        short version = in.readShort();
+        if (version != TraceFormat.VERSION) {
+            in.close();
+            throw new IOException("Unsupported trace version " + version + ", expected " + TraceFormat.VERSION);
+        }
+        this.startMillis = in.readLong();
+        this.intervalTicks = in.readInt();
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getIntervalTicks() {
+        return intervalTicks;
+    }
+
+    /**
+     * Reads the next cycle, along with any worlds that first appear in it.
+     *
+     * @return the cycle, or null at the end of the trace
+     * @throws IOException if the trace is corrupt
+     */
+    @Nullable
+    public Cycle next() throws IOException {
+        if (ended) {
+            return null;
+        }
+
+        List<TraceWorld> newWorlds = new ArrayList<>();
+        int[] playerIndexes = new int[16];
+        int[] worldIndexes = new int[16];
+        float[] positions = new float[48];
+        int players = 0;
+
+        while (true) {
+            byte tag;
+            try {
+                tag = in.readByte();
+            } catch (EOFException e) {
+                // The server stopped before the trace was closed, keep what was written
+                ended = true;
+                return null;
+            }
+
+            switch (tag) {
+                case TraceFormat.TAG_WORLD -> newWorlds.add(readWorld());
+                case TraceFormat.TAG_PLAYER -> {
+                    if (players == playerIndexes.length) {
+                        playerIndexes = Arrays.copyOf(playerIndexes, players * 2);
+                        worldIndexes = Arrays.copyOf(worldIndexes, players * 2);
+                        positions = Arrays.copyOf(positions, players * 6);
+                    }
+                    playerIndexes[players] = in.readInt();
+                    worldIndexes[players] = in.readShort();
+                    positions[players * 3] = in.readFloat();
+                    positions[players * 3 + 1] = in.readFloat();
+                    positions[players * 3 + 2] = in.readFloat();
+                    players++;
+                }
+                case TraceFormat.TAG_CYCLE_END -> {
+                    int tick = in.readInt();
+                    return new Cycle(tick, newWorlds, players, playerIndexes, worldIndexes, positions);
+                }
+                case TraceFormat.TAG_END -> {
+                    ended = true;
+                    return null;
+                }
+                default -> throw new IOException("Unknown trace record " + tag);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    @NotNull
+    private TraceWorld readWorld() throws IOException {
+        int index = in.readShort();
+        String name = in.readUTF();
+        int minHeight = in.readInt();
+        int maxHeight = in.readInt();
+        int regionCount = in.readInt();
+        List<ProtectedRegion> regions = new ArrayList<>(regionCount);
+        for (int i = 0; i < regionCount; i++) {
+            regions.add(readRegion());
+        }
+        return new TraceWorld(index, name, minHeight, maxHeight, regions);
+    }
+
+    @NotNull
+    private ProtectedRegion readRegion() throws IOException {
+        String id = in.readUTF();
+        byte shape = in.readByte();
+
+        ProtectedRegion region;
+        if (shape == TraceFormat.SHAPE_POLYGON) {
+            int minY = in.readInt();
+            int maxY = in.readInt();
+            int pointCount = in.readInt();
+            List<BlockVector2> points = new ArrayList<>(pointCount);
+            for (int i = 0; i < pointCount; i++) {
+                points.add(BlockVector2.at(in.readInt(), in.readInt()));
+            }
+            region = new ProtectedPolygonalRegion(id, points, minY, maxY);
+        } else {
+            // Other shapes are rendered from their bounding box anyway
+            BlockVector3 min = BlockVector3.at(in.readInt(), in.readInt(), in.readInt());
+            BlockVector3 max = BlockVector3.at(in.readInt(), in.readInt(), in.readInt());
+            region = new ProtectedCuboidRegion(id, min, max);
+        }
+
+        // Every traced region denies entry, that's why it was traced
+        region.setFlag(Flags.ENTRY, StateFlag.State.DENY);
+
+        int mask = in.readByte();
+        if ((mask & TraceFormat.FLAG_RENDER) != 0) {
+            StateFlag.State render = in.readByte() == 1 ? StateFlag.State.DENY : StateFlag.State.ALLOW;
+            if (ForcefieldFlags.RENDER != null) {
+                region.setFlag(ForcefieldFlags.RENDER, render);
+            }
+        }
+        if ((mask & TraceFormat.FLAG_MODE) != 0) {
+            ForcefieldFlags.WallMode mode = ForcefieldFlags.WallMode.values()[in.readByte()];
+            if (ForcefieldFlags.MODE != null) {
+                region.setFlag(ForcefieldFlags.MODE, mode);
+            }
+        }
+        if ((mask & TraceFormat.FLAG_PARTICLE_SPACING) != 0) {
+            double spacing = in.readDouble();
+            if (ForcefieldFlags.PARTICLE_SPACING != null) {
+                region.setFlag(ForcefieldFlags.PARTICLE_SPACING, spacing);
+            }
+        }
+        if ((mask & TraceFormat.FLAG_BLOCK_SPACING) != 0) {
+            double spacing = in.readDouble();
+            if (ForcefieldFlags.BLOCK_SPACING != null) {
+                region.setFlag(ForcefieldFlags.BLOCK_SPACING, spacing);
+            }
+        }
+        if ((mask & TraceFormat.FLAG_MAX_DISTANCE) != 0) {
+            int distance = in.readInt();
+            if (ForcefieldFlags.MAX_DISTANCE != null) {
+                region.setFlag(ForcefieldFlags.MAX_DISTANCE, distance);
+            }
+        }
+        return region;
+    }
+
+    /**
+     * A world and its entry-denied regions, as recorded when players first appeared in it.
+     */
+    public record TraceWorld(int index, @NotNull String name, int minHeight, int maxHeight,
+                             @NotNull List<ProtectedRegion> regions) {
+    }
+
+    /**
+     * The player positions of one recorded cycle. Player {@code i} is {@code playerIndexes[i]}, in world
+     * {@code worldIndexes[i]} at x, y, z {@code positions[i * 3 .. i * 3 + 2]}.
+     */
+    public record Cycle(int tick, @NotNull List<TraceWorld> newWorlds, int playerCount, int[] playerIndexes,
+                        int[] worldIndexes, float[] positions) {
+    }
+}
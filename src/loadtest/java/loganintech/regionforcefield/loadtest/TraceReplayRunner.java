@@ -0,0 +1,143 @@
+package loganintech.regionforcefield.loadtest;
+
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.task.ForcefieldUpdateTask;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replays a movement trace recorded with {@code /forcefield trace} through {@link ForcefieldUpdateTask}
+ * and reports per-cycle wall time, allocations and packet counts, like {@link LoadTestRunner} does for
+ * synthetic load.
+ * <p>
+ * Run with {@code ./gradlew replayTrace --args="trace=plugins/RegionForcefield/traces/trace-....fftrace"}.
+ */
+public final class TraceReplayRunner {
+
+    private static final int GROUND_HEIGHT = 64;
+
+    private final Path tracePath;
+    private final int warmupCycles;
+    private final int maxCycles;
+    private final boolean verbose;
+    private final ServerMock server;
+    private final Map<Integer, SimulatedWorld> worlds = new HashMap<>();
+    private final Map<Integer, SimulatedPlayer> players = new HashMap<>();
+
+    private TraceReplayRunner(@NotNull Map<String, String> values, @NotNull ServerMock server) {
+        String trace = values.get("trace");
+        if (trace == null) {
+            throw new IllegalArgumentException("Pass the trace file with trace=<path>");
+        }
+        this.tracePath = Path.of(trace);
+        this.warmupCycles = Integer.parseInt(values.getOrDefault("warmup", "5"));
+        this.maxCycles = Integer.parseInt(values.getOrDefault("cycles", "0"));
+        this.verbose = Boolean.parseBoolean(values.getOrDefault("verbose", "false"));
+        this.server = server;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> values = LoadTestConfig.parseArguments(args);
+        ServerMock server = MockBukkit.mock();
+        try {
+            new TraceReplayRunner(values, server).run();
+        } finally {
+            MockBukkit.unmock();
+        }
+    }
+
+    private void run() throws IOException {
+        // The plugin only checks that a plugin named WorldGuard is present
+        MockBukkit.createMockPlugin("WorldGuard");
+        RegionForcefieldPlugin plugin = MockBukkit.load(RegionForcefieldPlugin.class);
+        plugin.setDebug(false);
+
+        // Cycles are driven by the trace below
+        plugin.getUpdateTask().cancel();
+
+        FakeRegionPermissionChecker checker = new FakeRegionPermissionChecker(plugin);
+        ForcefieldUpdateTask task = new ForcefieldUpdateTask(plugin, checker, plugin.getForcefieldRenderer());
+        CycleStats stats = new CycleStats(verbose);
+
+        try (TraceReader reader = new TraceReader(tracePath)) {
+            System.out.println("Replaying " + tracePath + ", recorded " + Instant.ofEpochMilli(reader.getStartMillis()) +
+                " every " + reader.getIntervalTicks() + " ticks");
+
+            int cycle = 0;
+            TraceReader.Cycle traced;
+            while ((traced = reader.next()) != null && (maxCycles <= 0 || cycle < warmupCycles + maxCycles)) {
+                for (TraceReader.TraceWorld world : traced.newWorlds()) {
+                    addWorld(world, checker);
+                }
+                placePlayers(traced);
+                stats.runCycle(task, server, players.values(), cycle >= warmupCycles);
+                cycle++;
+            }
+
+            System.out.println("Replayed " + cycle + " cycles with " + players.size() + " players in " +
+                worlds.size() + " world(s)");
+        }
+
+        task.shutdown();
+        stats.report();
+    }
+
+    private void addWorld(@NotNull TraceReader.TraceWorld traced, @NotNull FakeRegionPermissionChecker checker) {
+        int ground = Math.max(traced.minHeight() + 1, Math.min(traced.maxHeight() - 1, GROUND_HEIGHT));
+        SimulatedWorld world = new SimulatedWorld(traced.name(), traced.minHeight(), traced.maxHeight(), ground);
+        server.addWorld(world);
+        worlds.put(traced.index(), world);
+        for (ProtectedRegion region : traced.regions()) {
+            checker.addRegion(world, region);
+        }
+        System.out.println("World " + traced.name() + ": " + traced.regions().size() + " entry-denied regions");
+    }
+
+    /**
+     * Moves every player to their traced position, connecting players who joined and
+     * disconnecting players who left since the last cycle.
+     */
+    private void placePlayers(@NotNull TraceReader.Cycle traced) {
+        Set<Integer> present = new HashSet<>();
+        for (int i = 0; i < traced.playerCount(); i++) {
+            SimulatedWorld world = worlds.get(traced.worldIndexes()[i]);
+            if (world == null) {
+                continue;
+            }
+
+            int index = traced.playerIndexes()[i];
+            float[] positions = traced.positions();
+            Location location = new Location(world, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+            present.add(index);
+
+            SimulatedPlayer player = players.get(index);
+            if (player == null) {
+                player = new SimulatedPlayer(server, "player" + index, location);
+                server.addPlayer(player);
+                players.put(index, player);
+            } else {
+                if (!player.isOnline()) {
+                    player.reconnect();
+                }
+                player.setLocation(location);
+            }
+        }
+
+        for (Map.Entry<Integer, SimulatedPlayer> entry : players.entrySet()) {
+            if (!present.contains(entry.getKey()) && entry.getValue().isOnline()) {
+                entry.getValue().disconnect();
+            }
+        }
+    }
+}
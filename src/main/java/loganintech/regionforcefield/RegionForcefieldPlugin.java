@@ -1,11 +1,23 @@
 package loganintech.regionforcefield;
 
+import loganintech.regionforcefield.api.ForcefieldService;
 import loganintech.regionforcefield.command.ForcefieldCommand;
+import loganintech.regionforcefield.forcefield.DisplayForcefieldRenderer;
 import loganintech.regionforcefield.forcefield.ForcefieldRenderer;
+import loganintech.regionforcefield.forcefield.ParticlePreferences;
+import loganintech.regionforcefield.listener.BlockUpdateListener;
 import loganintech.regionforcefield.listener.PlayerListener;
+import loganintech.regionforcefield.listener.RegionEditListener;
+import loganintech.regionforcefield.packet.ChunkPacketInjector;
+import loganintech.regionforcefield.profile.ForcefieldProfiler;
+import loganintech.regionforcefield.profile.ForcefieldTraceRecorder;
+import loganintech.regionforcefield.region.CachedForcefieldService;
+import loganintech.regionforcefield.region.ForcefieldFlags;
 import loganintech.regionforcefield.region.RegionPermissionChecker;
 import loganintech.regionforcefield.task.ForcefieldUpdateTask;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
@@ -16,8 +28,24 @@ import org.jetbrains.annotations.NotNull;
 public final class RegionForcefieldPlugin extends JavaPlugin {
 
     private RegionPermissionChecker permissionChecker;
+    private CachedForcefieldService queryService;
     private ForcefieldRenderer forcefieldRenderer;
+    private DisplayForcefieldRenderer displayRenderer;
+    private ParticlePreferences particlePreferences;
+    private ForcefieldProfiler profiler;
+    private ForcefieldTraceRecorder traceRecorder;
     private ForcefieldUpdateTask updateTask;
+    private ChunkPacketInjector chunkInjector;
+    private volatile FileConfiguration config;
+    private volatile boolean debug;
+
+    @Override
+    public void onLoad() {
+        // Custom flags have to be registered before WorldGuard loads its regions
+        if (getServer().getPluginManager().getPlugin("WorldGuard") != null) {
+            ForcefieldFlags.register(getLogger());
+        }
+    }
 
     @Override
     public void onEnable() {
@@ -25,6 +53,8 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
             // Save default config
             saveDefaultConfig();
 
+            this.debug = getConfig().getBoolean("debug", false);
+
             // Check for WorldGuard
             if (getServer().getPluginManager().getPlugin("WorldGuard") == null) {
                 getLogger().severe("WorldGuard not found! Disabling plugin.");
@@ -34,10 +64,28 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
 
             // Initialize components
             this.permissionChecker = new RegionPermissionChecker(this);
+            this.queryService = new CachedForcefieldService(this, permissionChecker);
             this.forcefieldRenderer = new ForcefieldRenderer(this);
+            this.displayRenderer = new DisplayForcefieldRenderer(this);
+            this.particlePreferences = new ParticlePreferences(this);
+            this.profiler = new ForcefieldProfiler(this);
+            this.traceRecorder = new ForcefieldTraceRecorder(this);
+
+            // Optionally write fake blocks into chunk packets, only touching PacketEvents if it is installed
+            if (getConfig().getBoolean("packet-injection", false)) {
+                if (getServer().getPluginManager().isPluginEnabled("packetevents")) {
+                    this.chunkInjector = new ChunkPacketInjector(this, forcefieldRenderer.enableChunkInjection());
+                    chunkInjector.register();
+                    getLogger().info("Injecting forcefield blocks into chunk packets through PacketEvents");
+                } else {
+                    getLogger().warning("packet-injection is enabled but PacketEvents is not installed, ignoring it");
+                }
+            }
 
             // Register listeners
             getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+            getServer().getPluginManager().registerEvents(new BlockUpdateListener(this), this);
+            getServer().getPluginManager().registerEvents(new RegionEditListener(this), this);
 
             // Register commands
             ForcefieldCommand commandExecutor = new ForcefieldCommand(this);
@@ -49,10 +97,13 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
                 getLogger().warning("Failed to register /forcefield command!");
             }
 
+            // Let other plugins ask which regions a player can't enter
+            getServer().getServicesManager().register(ForcefieldService.class, queryService, this, ServicePriority.Normal);
+
             // Start the periodic update task
             this.updateTask = new ForcefieldUpdateTask(this, permissionChecker, forcefieldRenderer);
             long updateInterval = getConfig().getLong("update-interval-ticks", 20L);
-            updateTask.runTaskTimer(this, 0L, updateInterval);
+            updateTask.runTaskTimer(this, 0L, 1L);
 
             getLogger().info("RegionForcefield has been enabled!");
             getLogger().info("Update interval: " + updateInterval + " ticks");
@@ -69,6 +120,23 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
         // Cancel the update task
         if (updateTask != null) {
             updateTask.cancel();
+            updateTask.shutdown();
+        }
+
+        getServer().getServicesManager().unregisterAll(this);
+
+        // Close a running trace so the file stays readable
+        if (traceRecorder != null) {
+            traceRecorder.stop();
+        }
+
+        if (chunkInjector != null) {
+            chunkInjector.unregister();
+        }
+
+        // Display entities are not persistent, but remove them right away
+        if (displayRenderer != null) {
+            displayRenderer.removeAll();
         }
 
         getLogger().info("RegionForcefield has been disabled!");
@@ -84,6 +152,16 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
         return permissionChecker;
     }
 
+    /**
+     * Gets the query service registered for other plugins.
+     *
+     * @return the query service
+     */
+    @NotNull
+    public CachedForcefieldService getQueryService() {
+        return queryService;
+    }
+
     /**
      * Gets the forcefield renderer.
      *
@@ -94,13 +172,105 @@ public final class RegionForcefieldPlugin extends JavaPlugin {
         return forcefieldRenderer;
     }
 
+    /**
+     * Gets the display entity renderer.
+     *
+     * @return the display entity renderer
+     */
+    @NotNull
+    public DisplayForcefieldRenderer getDisplayRenderer() {
+        return displayRenderer;
+    }
+
+    /**
+     * Gets the per-player particle preferences.
+     *
+     * @return the particle preferences
+     */
+    @NotNull
+    public ParticlePreferences getParticlePreferences() {
+        return particlePreferences;
+    }
+
+    /**
+     * Gets the per-region cost profiler.
+     *
+     * @return the profiler
+     */
+    @NotNull
+    public ForcefieldProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Gets the movement trace recorder.
+     *
+     * @return the trace recorder
+     */
+    @NotNull
+    public ForcefieldTraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    /**
+     * Gets the periodic forcefield update task.
+     *
+     * @return the update task
+     */
+    @NotNull
+    public ForcefieldUpdateTask getUpdateTask() {
+        return updateTask;
+    }
+
+    /**
+     * Gets the config, which is replaced as a whole when a reload is swapped in.
+     *
+     * @return the current config
+     */
+    @Override
+    @NotNull
+    public FileConfiguration getConfig() {
+        FileConfiguration swapped = config;
+        return swapped != null ? swapped : super.getConfig();
+    }
+
+    /**
+     * Replaces the config with one loaded by a reload. Must be called on the main thread.
+     *
+     * @param config the new config
+     */
+    public void applyConfig(@NotNull FileConfiguration config) {
+        this.config = config;
+        this.debug = config.getBoolean("debug", false);
+    }
+
+    /**
+     * Checks whether debug mode is enabled.
+     *
+     * @return true if debug messages are logged
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Enables or disables debug mode, without saving it to the config file.
+     *
+     * @param debug whether to log debug messages
+     */
+    public void setDebug(boolean debug) {
+        getConfig().set("debug", debug);
+        this.debug = debug;
+    }
+
     /**
      * Logs a debug message if debug mode is enabled.
      *
      * @param message the message to log
      */
     public void debug(@NotNull String message) {
-        if (getConfig().getBoolean("debug", false)) {
+        // Called from worker threads, so this reads a cached flag instead of the config
+        if (debug) {
             getLogger().info("[DEBUG] " + message);
         }
     }
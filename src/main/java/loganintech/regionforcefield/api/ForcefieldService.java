@@ -0,0 +1,78 @@
+package loganintech.regionforcefield.api;
+
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Answers which WorldGuard regions a player cannot enter, from the same caches the forcefields are rendered from.
+ * <p>
+ * Get it from Bukkit's services manager:
+ * <pre>{@code
+ * ForcefieldService forcefields = Bukkit.getServicesManager().load(ForcefieldService.class);
+ * if (forcefields != null && forcefields.isBlocked(player, destination)) { ... }
+ * }</pre>
+ * All methods can be called from any thread. On the main thread, results reflect the regions and the player's
+ * permissions right now, within a few seconds for worlds without players. Other threads get the results of
+ * the last update cycle, which resolves every online player in their current world: a player's access in
+ * another world, or in a world no one has been in yet, reads as nothing blocked there.
+ * <p>
+ * Callers that cache results can compare {@link #getVersion(World)} or {@link #getGlobalVersion()} with the
+ * value they cached them at. Versions change when a world's entry-denied regions, their shapes or priorities,
+ * or their owners and members change, whether through {@code /rg} or WorldGuard's API. API edits are noticed
+ * by the next update cycle, or the next main-thread query of a world without players. Versions don't change
+ * when a player's own permissions do.
+ */
+public interface ForcefieldService {
+
+    /**
+     * Checks whether a location lies inside a region the player cannot enter.
+     *
+     * @param player   the player
+     * @param location the location to check
+     * @return true if entering the location is denied for the player
+     */
+    boolean isBlocked(@NotNull Player player, @NotNull Location location);
+
+    /**
+     * Gets the regions a player cannot enter whose bounds come within a radius of a location.
+     *
+     * @param player   the player
+     * @param location the centre of the search
+     * @param radius   the search radius in blocks
+     * @return the blocked regions, nearest first
+     */
+    @NotNull
+    List<ProtectedRegion> blockedRegionsNear(@NotNull Player player, @NotNull Location location, double radius);
+
+    /**
+     * Gets the region nearest to a location that the player cannot enter.
+     *
+     * @param player   the player
+     * @param location the location
+     * @return the nearest blocked region, or null if the player can enter every region of the world
+     */
+    @Nullable
+    ProtectedRegion nearestBlockedRegion(@NotNull Player player, @NotNull Location location);
+
+    /**
+     * Gets the version of a world's blocked-region data. It changes whenever a region change may have changed
+     * results for the world, see above for what is covered.
+     *
+     * @param world the world
+     * @return the current version, 0 off the main thread for a world that has not been indexed yet
+     */
+    long getVersion(@NotNull World world);
+
+    /**
+     * Gets a version that changes whenever the version of any world changes.
+     *
+     * @return the current global version
+     */
+    long getGlobalVersion();
+}
@@ -1,9 +1,15 @@
 package loganintech.regionforcefield.command;
 
+import com.destroystokyo.paper.ClientOption;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ForcefieldSettings;
+import loganintech.regionforcefield.forcefield.ParticleLevel;
+import loganintech.regionforcefield.forcefield.ParticlePreferences;
+import loganintech.regionforcefield.forcefield.PlayerBlockTracker;
+import loganintech.regionforcefield.task.LoadGovernor;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -25,6 +31,11 @@ import java.util.Set;
  */
 public class ForcefieldCommand implements CommandExecutor, TabCompleter {
 
+    private static final int DEFAULT_PROFILE_SECONDS = 10;
+    private static final int MAX_PROFILE_SECONDS = 300;
+    private static final int DEFAULT_TRACE_SECONDS = 600;
+    private static final int MAX_TRACE_SECONDS = 86400;
+
     private final RegionForcefieldPlugin plugin;
 
     public ForcefieldCommand(@NotNull RegionForcefieldPlugin plugin) {
@@ -51,6 +62,12 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
                 return handleTest(sender);
             case "material":
                 return handleMaterial(sender, args);
+            case "profile":
+                return handleProfile(sender, args);
+            case "trace":
+                return handleTrace(sender, args);
+            case "particles":
+                return handleParticles(sender, args);
             case "help":
                 return handleHelp(sender);
             default:
@@ -65,10 +82,9 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        boolean currentDebug = plugin.getConfig().getBoolean("debug", false);
-        boolean newDebug = !currentDebug;
+        boolean newDebug = !plugin.isDebug();
 
-        plugin.getConfig().set("debug", newDebug);
+        plugin.setDebug(newDebug);
         plugin.saveConfig();
 
         sender.sendMessage(ChatColor.GREEN + "Debug mode " +
@@ -85,15 +101,18 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        try {
-            plugin.reloadConfig();
+        // The new state is built off the main thread and only used from the next cycle on
+        sender.sendMessage(ChatColor.GRAY + "Reloading configuration...");
+        plugin.getUpdateTask().reload().whenComplete((state, error) -> {
+            if (error != null) {
+                sender.sendMessage(ChatColor.RED + "Error reloading configuration: " + error.getMessage());
+                plugin.getLogger().warning("Error reloading configuration: " + error.getMessage());
+                error.printStackTrace();
+                return;
+            }
             sender.sendMessage(ChatColor.GREEN + "Configuration reloaded successfully!");
             plugin.getLogger().info(sender.getName() + " reloaded the configuration.");
-        } catch (Exception e) {
-            sender.sendMessage(ChatColor.RED + "Error reloading configuration: " + e.getMessage());
-            plugin.getLogger().warning("Error reloading configuration: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
         return true;
     }
 
@@ -106,11 +125,28 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GOLD + "=== RegionForcefield Status ===");
         sender.sendMessage(ChatColor.YELLOW + "Version: " + ChatColor.WHITE + plugin.getDescription().getVersion());
         sender.sendMessage(ChatColor.YELLOW + "Debug Mode: " + ChatColor.WHITE +
-            (plugin.getConfig().getBoolean("debug", false) ? "Enabled" : "Disabled"));
+            (plugin.isDebug() ? "Enabled" : "Disabled"));
         sender.sendMessage(ChatColor.YELLOW + "Update Interval: " + ChatColor.WHITE +
             plugin.getConfig().getLong("update-interval-ticks", 20L) + " ticks");
         sender.sendMessage(ChatColor.YELLOW + "Max Render Distance: " + ChatColor.WHITE +
             plugin.getConfig().getInt("max-render-distance", 100) + " blocks");
+        sender.sendMessage(ChatColor.YELLOW + "Renderer: " + ChatColor.WHITE +
+            plugin.getForcefieldRenderer().getSettings().getRenderBackend().name().toLowerCase() +
+            " (" + plugin.getDisplayRenderer().getEntityCount() + " display entities)");
+        sender.sendMessage(ChatColor.YELLOW + "Rendered Regions: " + ChatColor.WHITE +
+            plugin.getForcefieldRenderer().getViewerIndex().getViewedRegionCount());
+        PlayerBlockTracker tracker = plugin.getForcefieldRenderer().getBlockTracker();
+        ForcefieldSettings settings = plugin.getForcefieldRenderer().getSettings();
+        sender.sendMessage(ChatColor.YELLOW + "Fake Blocks: " + ChatColor.WHITE +
+            String.format("%d tracked at %d locations, ~%.1f MiB (cap %s per player, %s total)",
+                tracker.getTrackedCount(), tracker.getLocationCount(), tracker.getEstimatedBytes() / (1024.0 * 1024.0),
+                formatCap(settings.getMaxBlocksPerPlayer()), formatCap(settings.getMaxBlocksTotal())));
+        LoadGovernor governor = plugin.getUpdateTask().getGovernor();
+        sender.sendMessage(ChatColor.YELLOW + "Load Governor: " + ChatColor.WHITE +
+            (governor.isEnabled()
+                ? String.format("%.1f ms/tick, level %d/%d, every %dx interval", governor.getMspt(),
+                    governor.getLevel(), governor.getMaxLevel(), governor.getIntervalMultiplier())
+                : "Disabled"));
         sender.sendMessage(ChatColor.YELLOW + "Render Walls: " + ChatColor.WHITE +
             (plugin.getConfig().getBoolean("render-walls", true) ? "Yes" : "No"));
 
@@ -119,6 +155,8 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
             (plugin.getConfig().getBoolean("render-particles", true) ? "Yes" : "No"));
         sender.sendMessage(ChatColor.YELLOW + "  Spacing: " + ChatColor.WHITE +
             plugin.getConfig().getDouble("particle-spacing", 0.5) + " blocks");
+        sender.sendMessage(ChatColor.YELLOW + "  Mode: " + ChatColor.WHITE +
+            plugin.getForcefieldRenderer().getSettings().getParticleMode().name().toLowerCase());
         int red = plugin.getConfig().getInt("particle-color.red", 147);
         int green = plugin.getConfig().getInt("particle-color.green", 112);
         int blue = plugin.getConfig().getInt("particle-color.blue", 219);
@@ -260,8 +298,10 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
             plugin.getConfig().set("block-material", materialName);
             plugin.saveConfig();
 
+            // The next cycle re-sends each player's kept blocks in the new material
+            plugin.getForcefieldRenderer().reloadSettings();
+
             sender.sendMessage(ChatColor.GREEN + "Block material set to " + ChatColor.YELLOW + materialName);
-            sender.sendMessage(ChatColor.GRAY + "Forcefields will update on next render cycle.");
             plugin.getLogger().info(sender.getName() + " changed block material to " + materialName);
 
         } catch (IllegalArgumentException e) {
@@ -272,6 +312,144 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    private boolean handleProfile(@NotNull CommandSender sender, @NotNull String[] args) {
+        if (!sender.hasPermission("regionforcefield.profile")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return true;
+        }
+
+        // Usage: /forcefield profile [player|region] [seconds], either argument may be left out
+        String target = null;
+        String secondsArg = null;
+        if (args.length >= 3) {
+            target = args[1];
+            secondsArg = args[2];
+        } else if (args.length == 2) {
+            if (args[1].matches("\\d+")) {
+                secondsArg = args[1];
+            } else {
+                target = args[1];
+            }
+        }
+
+        int seconds = DEFAULT_PROFILE_SECONDS;
+        if (secondsArg != null) {
+            try {
+                seconds = Integer.parseInt(secondsArg);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid number of seconds: " + secondsArg);
+                return true;
+            }
+            if (seconds < 1 || seconds > MAX_PROFILE_SECONDS) {
+                sender.sendMessage(ChatColor.RED + "Seconds must be between 1 and " + MAX_PROFILE_SECONDS + ".");
+                return true;
+            }
+        }
+
+        // An online player's name filters by viewer, anything else is treated as a region id
+        String playerFilter = null;
+        String regionFilter = null;
+        if (target != null) {
+            Player targetPlayer = plugin.getServer().getPlayerExact(target);
+            if (targetPlayer != null) {
+                playerFilter = targetPlayer.getName();
+            } else {
+                regionFilter = target;
+            }
+        }
+
+        if (!plugin.getProfiler().start(sender, playerFilter, regionFilter, seconds)) {
+            sender.sendMessage(ChatColor.RED + "A profile is already running, wait for it to finish.");
+            return true;
+        }
+
+        String scope = playerFilter != null ? "player " + playerFilter
+            : regionFilter != null ? "region " + regionFilter : "all regions";
+        sender.sendMessage(ChatColor.GREEN + "Profiling " + ChatColor.YELLOW + scope +
+            ChatColor.GREEN + " for " + seconds + " seconds...");
+        return true;
+    }
+
+    private boolean handleTrace(@NotNull CommandSender sender, @NotNull String[] args) {
+        if (!sender.hasPermission("regionforcefield.trace")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return true;
+        }
+
+        // Usage: /forcefield trace <start [seconds]|stop>
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        if (action.equals("stop")) {
+            if (!plugin.getTraceRecorder().isActive()) {
+                sender.sendMessage(ChatColor.RED + "No trace is being recorded.");
+                return true;
+            }
+            plugin.getTraceRecorder().stop();
+            sender.sendMessage(ChatColor.GREEN + "Stopping trace...");
+            return true;
+        }
+        if (!action.equals("start")) {
+            sender.sendMessage(ChatColor.RED + "Usage: /forcefield trace <start [seconds]|stop>");
+            return true;
+        }
+
+        int seconds = DEFAULT_TRACE_SECONDS;
+        if (args.length >= 3) {
+            try {
+                seconds = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid number of seconds: " + args[2]);
+                return true;
+            }
+            if (seconds < 1 || seconds > MAX_TRACE_SECONDS) {
+                sender.sendMessage(ChatColor.RED + "Seconds must be between 1 and " + MAX_TRACE_SECONDS + ".");
+                return true;
+            }
+        }
+
+        if (!plugin.getTraceRecorder().start(sender, seconds)) {
+            sender.sendMessage(ChatColor.RED + "A trace is already being recorded, stop it first.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GREEN + "Recording a movement trace for " + seconds + " seconds...");
+        plugin.getLogger().info(sender.getName() + " started recording a movement trace");
+        return true;
+    }
+
+    private boolean handleParticles(@NotNull CommandSender sender, @NotNull String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(ChatColor.RED + "This command can only be used by players.");
+            return true;
+        }
+
+        if (!sender.hasPermission("regionforcefield.particles")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+            return true;
+        }
+
+        ParticlePreferences preferences = plugin.getParticlePreferences();
+        if (args.length < 2) {
+            ClientOption.ParticleVisibility client = player.getClientOption(ClientOption.PARTICLE_VISIBILITY);
+            sender.sendMessage(ChatColor.GOLD + "Forcefield particles: " + ChatColor.YELLOW +
+                preferences.getPreference(player).name().toLowerCase());
+            sender.sendMessage(ChatColor.GRAY + "Your client's particle setting (" + client.name().toLowerCase() +
+                ") can lower this further.");
+            sender.sendMessage(ChatColor.GRAY + "Usage: /forcefield particles <full|reduced|off>");
+            return true;
+        }
+
+        ParticleLevel level = ParticleLevel.fromName(args[1]);
+        if (level == null) {
+            sender.sendMessage(ChatColor.RED + "Usage: /forcefield particles <full|reduced|off>");
+            return true;
+        }
+
+        preferences.setPreference(player, level);
+        plugin.getUpdateTask().queuePlayerUpdate(player);
+        sender.sendMessage(ChatColor.GREEN + "Forcefield particles set to " + ChatColor.YELLOW + level.name().toLowerCase());
+        return true;
+    }
+
     private boolean handleHelp(@NotNull CommandSender sender) {
         if (!sender.hasPermission("regionforcefield.help")) {
             sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
@@ -290,6 +468,9 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "/forcefield info " + ChatColor.GRAY + "- Show region information");
         sender.sendMessage(ChatColor.YELLOW + "/forcefield test " + ChatColor.GRAY + "- Test block rendering");
         sender.sendMessage(ChatColor.YELLOW + "/forcefield material <MATERIAL> " + ChatColor.GRAY + "- Change block material");
+        sender.sendMessage(ChatColor.YELLOW + "/forcefield profile [player|region] [seconds] " + ChatColor.GRAY + "- Profile forcefield cost per region");
+        sender.sendMessage(ChatColor.YELLOW + "/forcefield trace <start [seconds]|stop> " + ChatColor.GRAY + "- Record player movement for the load test");
+        sender.sendMessage(ChatColor.YELLOW + "/forcefield particles <full|reduced|off> " + ChatColor.GRAY + "- Choose how many forcefield particles you see");
         sender.sendMessage(ChatColor.YELLOW + "/forcefield help " + ChatColor.GRAY + "- Show this help message");
     }
 
@@ -326,6 +507,14 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
         );
     }
 
+    /**
+     * Formats a fake block cap, where 0 means no cap.
+     */
+    @NotNull
+    private String formatCap(int cap) {
+        return cap > 0 ? String.valueOf(cap) : "no";
+    }
+
     /**
      * Clamps a value between a minimum and maximum.
      *
@@ -365,9 +554,52 @@ public class ForcefieldCommand implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("regionforcefield.material") && "material".startsWith(input)) {
                 completions.add("material");
             }
+            if (sender.hasPermission("regionforcefield.profile") && "profile".startsWith(input)) {
+                completions.add("profile");
+            }
+            if (sender.hasPermission("regionforcefield.trace") && "trace".startsWith(input)) {
+                completions.add("trace");
+            }
+            if (sender.hasPermission("regionforcefield.particles") && "particles".startsWith(input)) {
+                completions.add("particles");
+            }
             if (sender.hasPermission("regionforcefield.help") && "help".startsWith(input)) {
                 completions.add("help");
             }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("profile")) {
+            if (!sender.hasPermission("regionforcefield.profile")) {
+                return completions;
+            }
+
+            // Suggest online players, region ids can be typed out
+            String input = args[1].toLowerCase();
+            for (Player player : plugin.getServer().getOnlinePlayers()) {
+                if (player.getName().toLowerCase().startsWith(input)) {
+                    completions.add(player.getName());
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("trace")) {
+            if (!sender.hasPermission("regionforcefield.trace")) {
+                return completions;
+            }
+
+            String input = args[1].toLowerCase();
+            for (String action : List.of("start", "stop")) {
+                if (action.startsWith(input)) {
+                    completions.add(action);
+                }
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("particles")) {
+            if (!sender.hasPermission("regionforcefield.particles")) {
+                return completions;
+            }
+
+            String input = args[1].toLowerCase();
+            for (ParticleLevel level : ParticleLevel.values()) {
+                if (level.name().toLowerCase().startsWith(input)) {
+                    completions.add(level.name().toLowerCase());
+                }
+            }
         } else if (args.length == 2 && args[0].equalsIgnoreCase("material")) {
             // Only show material suggestions if the sender has permission
             if (!sender.hasPermission("regionforcefield.material")) {
@@ -0,0 +1,201 @@
+package loganintech.regionforcefield.forcefield;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * The fake blocks to write into outgoing chunk packets, shared between the main thread and the network threads.
+ * <p>
+ * After each send the renderer publishes every fake block a player should see, including the ones in chunks
+ * the player hasn't received yet. The packet injector writes them into chunk packets where the packet has air,
+ * and reports what it wrote so the renderer can track those blocks without sending them again.
+ */
+public class ChunkInjectionIndex {
+
+    private final Map<UUID, PlayerBlocks> players = new ConcurrentHashMap<>();
+    private final Map<UUID, Queue<Long>> injected = new ConcurrentHashMap<>();
+    private volatile BlockData blockData;
+
+    /**
+     * Publishes the fake blocks of a player, replacing the previous ones. Must be called on the main thread.
+     *
+     * @param playerId  the player
+     * @param world     the world the blocks are in
+     * @param blocks    the fake block locations
+     * @param blockData the fake block data
+     */
+    public void publish(@NotNull UUID playerId, @NotNull World world, @NotNull Collection<Location> blocks,
+                        @NotNull BlockData blockData) {
+        this.blockData = blockData;
+        if (blocks.isEmpty()) {
+            players.remove(playerId);
+            return;
+        }
+
+        Map<Long, LongList> chunks = new HashMap<>();
+        for (Location location : blocks) {
+            long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            chunks.computeIfAbsent(chunkKey, k -> new LongList())
+                .add(Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        }
+
+        Map<Long, long[]> packed = new HashMap<>(chunks.size() * 2);
+        for (Map.Entry<Long, LongList> entry : chunks.entrySet()) {
+            packed.put(entry.getKey(), entry.getValue().toArray());
+        }
+        players.put(playerId, new PlayerBlocks(world.getUID(), packed));
+    }
+
+    /**
+     * Removes some of a player's published fake blocks, e.g. when they were evicted by the server-wide cap,
+     * so chunk packets stop carrying them. Must be called on the main thread.
+     *
+     * @param playerId  the player
+     * @param locations the blocks to remove
+     */
+    public void removeBlocks(@NotNull UUID playerId, @NotNull Collection<Location> locations) {
+        PlayerBlocks blocks = players.get(playerId);
+        if (blocks == null) {
+            return;
+        }
+
+        Map<Long, Set<Long>> removed = new HashMap<>();
+        for (Location location : locations) {
+            long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            if (blocks.chunks().containsKey(chunkKey)) {
+                removed.computeIfAbsent(chunkKey, k -> new HashSet<>())
+                    .add(Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        // Published maps are never modified, untouched chunks keep their arrays
+        Map<Long, long[]> chunks = new HashMap<>(blocks.chunks());
+        for (Map.Entry<Long, Set<Long>> entry : removed.entrySet()) {
+            LongList kept = new LongList();
+            for (long blockKey : chunks.get(entry.getKey())) {
+                if (!entry.getValue().contains(blockKey)) {
+                    kept.add(blockKey);
+                }
+            }
+            if (kept.size == 0) {
+                chunks.remove(entry.getKey());
+            } else {
+                chunks.put(entry.getKey(), kept.toArray());
+            }
+        }
+        players.put(playerId, new PlayerBlocks(blocks.worldId(), chunks));
+    }
+
+    /**
+     * Gets the fake blocks of a player inside a chunk of the world they were published for. Safe to call
+     * from any thread. A player is cleared when they change worlds, before the new world's chunks are sent,
+     * so the published world is the one the chunk belongs to.
+     *
+     * @param playerId the player
+     * @param chunkKey the chunk key
+     * @return the packed block keys, or null if there are none
+     */
+    @Nullable
+    public long[] getBlocks(@NotNull UUID playerId, long chunkKey) {
+        PlayerBlocks blocks = players.get(playerId);
+        if (blocks == null) {
+            return null;
+        }
+        return blocks.chunks().get(chunkKey);
+    }
+
+    /**
+     * Gets the block data fake blocks are shown as.
+     *
+     * @return the block data, or null before anything was published
+     */
+    @Nullable
+    public BlockData getBlockData() {
+        return blockData;
+    }
+
+    /**
+     * Records that a fake block was written into a chunk packet. Called from the network threads.
+     *
+     * @param playerId the player
+     * @param blockKey the packed block key
+     */
+    public void recordInjected(@NotNull UUID playerId, long blockKey) {
+        injected.computeIfAbsent(playerId, k -> new ConcurrentLinkedQueue<>()).add(blockKey);
+    }
+
+    /**
+     * Hands every block injected for a player since the last call to a consumer.
+     *
+     * @param playerId the player
+     * @param consumer receives the packed block keys
+     */
+    public void drainInjected(@NotNull UUID playerId, @NotNull LongConsumer consumer) {
+        Queue<Long> queue = injected.get(playerId);
+        if (queue == null) {
+            return;
+        }
+
+        Long blockKey;
+        while ((blockKey = queue.poll()) != null) {
+            consumer.accept(blockKey);
+        }
+    }
+
+    /**
+     * Forgets a player, e.g. when they disconnect.
+     *
+     * @param playerId the player
+     */
+    public void clearPlayer(@NotNull UUID playerId) {
+        players.remove(playerId);
+        injected.remove(playerId);
+    }
+
+    /**
+     * A player's fake blocks grouped by chunk. Never modified once published.
+     */
+    private record PlayerBlocks(@NotNull UUID worldId, @NotNull Map<Long, long[]> chunks) {
+    }
+
+    /**
+     * Minimal growable list of primitive longs.
+     */
+    private static final class LongList {
+
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @NotNull
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Renders forcefields as scaled, translucent block display entities.
+ * <p>
+ * Each wall of a region is split into tiles of at most {@code display-tile-size} blocks and every tile
+ * is a single display entity. The entities are hidden by default and only shown to the players that
+ * render the region. They are spawned once and removed when the last viewer stops rendering the region,
+ * so a whole region costs a handful of entity packets instead of per-cycle block and particle packets.
+ * <p>
+ * The tiles are real, non-persistent server entities, so each region is capped at
+ * {@code display-max-tiles-per-region} by growing its tiles. Tiles in unloaded chunks wait for their
+ * chunk to load instead of being checked every update.
+ */
+public class DisplayForcefieldRenderer {
+
+    private final RegionForcefieldPlugin plugin;
+    private final Map<String, RegionDisplay> displays = new HashMap<>();
+    private final Map<UUID, Set<String>> playerRegions = new HashMap<>();
+
+    /**
+     * Creates a new display entity renderer.
+     *
+     * @param plugin the plugin instance
+     */
+    public DisplayForcefieldRenderer(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Shows the given regions to a player and hides the ones they no longer render.
+     * Must be called on the main thread.
+     *
+     * @param player   the player
+     * @param regions  the regions the player should see this cycle
+     * @param settings the settings snapshot for this cycle
+     */
+    public void update(@NotNull Player player, @NotNull Collection<ProtectedRegion> regions,
+                       @NotNull ForcefieldSettings settings) {
+        World world = player.getWorld();
+        Set<String> oldKeys = playerRegions.getOrDefault(player.getUniqueId(), Collections.emptySet());
+        Set<String> newKeys = new HashSet<>();
+
+        for (ProtectedRegion region : regions) {
+            String key = getKey(world, region);
+            RegionDisplay display = getOrCreate(key, world, region, settings);
+            newKeys.add(key);
+            if (display.viewers.add(player.getUniqueId())) {
+                display.show(player);
+            }
+        }
+
+        for (String key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                removeViewer(key, player);
+            }
+        }
+
+        if (newKeys.isEmpty()) {
+            playerRegions.remove(player.getUniqueId());
+        } else {
+            playerRegions.put(player.getUniqueId(), newKeys);
+        }
+    }
+
+    /**
+     * Hides all display forcefields from a player, e.g. when they disconnect.
+     *
+     * @param player the player
+     */
+    public void clearPlayer(@NotNull Player player) {
+        Set<String> keys = playerRegions.remove(player.getUniqueId());
+        if (keys != null) {
+            for (String key : keys) {
+                removeViewer(key, player);
+            }
+        }
+    }
+
+    /**
+     * Queues the tiles of a loaded chunk to be spawned on the next update. Tiles that were spawned before
+     * were removed along with the chunk. Must be called on the main thread.
+     *
+     * @param world  the chunk's world
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public void onChunkLoad(@NotNull World world, int chunkX, int chunkZ) {
+        long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+        for (RegionDisplay display : displays.values()) {
+            if (display.worldId.equals(world.getUID())) {
+                display.queueChunk(chunkKey);
+            }
+        }
+    }
+
+    /**
+     * Removes every display entity. Called when the plugin is disabled.
+     */
+    public void removeAll() {
+        for (RegionDisplay display : displays.values()) {
+            display.remove();
+        }
+        displays.clear();
+        playerRegions.clear();
+    }
+
+    /**
+     * Gets the number of display entities currently spawned.
+     *
+     * @return the entity count
+     */
+    public int getEntityCount() {
+        int count = 0;
+        for (RegionDisplay display : displays.values()) {
+            count += display.entities.size();
+        }
+        return count;
+    }
+
+    private void removeViewer(@NotNull String key, @NotNull Player player) {
+        RegionDisplay display = displays.get(key);
+        if (display == null) {
+            return;
+        }
+
+        display.viewers.remove(player.getUniqueId());
+        display.hide(player);
+        if (display.viewers.isEmpty()) {
+            display.remove();
+            displays.remove(key);
+        }
+    }
+
+    /**
+     * Gets the display of a region, respawning it if the region or the display settings changed.
+     */
+    @NotNull
+    private RegionDisplay getOrCreate(@NotNull String key, @NotNull World world, @NotNull ProtectedRegion region,
+                                      @NotNull ForcefieldSettings settings) {
+        int signature = getSignature(region, settings);
+        RegionDisplay display = displays.get(key);
+        if (display != null && display.signature != signature) {
+            display.remove();
+            displays.remove(key);
+            display = null;
+        }
+
+        if (display == null) {
+            display = new RegionDisplay(world, signature);
+            List<Tile> tiles = new ArrayList<>();
+            double tileSize = settings.getDisplayTileSize();
+            buildTiles(region, tileSize, tiles);
+            while (tiles.size() > settings.getDisplayMaxTiles()) {
+                // Every entity is ticked by the server, so huge regions get fewer, larger tiles
+                tileSize *= 2;
+                tiles.clear();
+                buildTiles(region, tileSize, tiles);
+            }
+            display.addTiles(tiles);
+            displays.put(key, display);
+            plugin.debug("Created " + tiles.size() + " display tiles of " + tileSize + " blocks for region " + region.getId());
+        }
+
+        display.spawnMissing(world, settings);
+        return display;
+    }
+
+    /**
+     * Splits the walls of a region into tiles.
+     */
+    private void buildTiles(@NotNull ProtectedRegion region, double tileSize, @NotNull List<Tile> tiles) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        // Walls sit on the outer faces of the region's blocks
+        double minY = min.y();
+        double maxY = max.y() + 1;
+
+        if (region instanceof ProtectedPolygonalRegion) {
+            List<BlockVector2> points = region.getPoints();
+            for (int i = 0; i < points.size(); i++) {
+                BlockVector2 point1 = points.get(i);
+                BlockVector2 point2 = points.get((i + 1) % points.size());
+                addWallTiles(point1.x() + 0.5, point1.z() + 0.5, point2.x() + 0.5, point2.z() + 0.5,
+                    minY, maxY, tileSize, tiles);
+            }
+            return;
+        }
+
+        // Cuboids and other region types use their bounding box
+        double minX = min.x();
+        double minZ = min.z();
+        double maxX = max.x() + 1;
+        double maxZ = max.z() + 1;
+        addWallTiles(minX, minZ, maxX, minZ, minY, maxY, tileSize, tiles);
+        addWallTiles(maxX, minZ, maxX, maxZ, minY, maxY, tileSize, tiles);
+        addWallTiles(maxX, maxZ, minX, maxZ, minY, maxY, tileSize, tiles);
+        addWallTiles(minX, maxZ, minX, minZ, minY, maxY, tileSize, tiles);
+    }
+
+    /**
+     * Splits a vertical wall between two points into tiles.
+     */
+    private void addWallTiles(double x1, double z1, double x2, double z2, double minY, double maxY,
+                              double tileSize, @NotNull List<Tile> tiles) {
+        double length = Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(z2 - z1, 2));
+        double height = maxY - minY;
+        if (length <= 0 || height <= 0) {
+            return;
+        }
+
+        int columns = (int) Math.ceil(length / tileSize);
+        int rows = (int) Math.ceil(height / tileSize);
+        double tileLength = length / columns;
+        double tileHeight = height / rows;
+        double directionX = (x2 - x1) / length;
+        double directionZ = (z2 - z1) / length;
+
+        // Rotate the display's local x axis onto the wall direction
+        float angle = (float) Math.atan2(-directionZ, directionX);
+
+        for (int column = 0; column < columns; column++) {
+            double x = x1 + directionX * tileLength * column;
+            double z = z1 + directionZ * tileLength * column;
+            for (int row = 0; row < rows; row++) {
+                tiles.add(new Tile(x, minY + tileHeight * row, z, angle, (float) tileLength, (float) tileHeight));
+            }
+        }
+    }
+
+    /**
+     * Gets a value that changes whenever the displayed geometry of a region would change.
+     */
+    private int getSignature(@NotNull ProtectedRegion region, @NotNull ForcefieldSettings settings) {
+        return Objects.hash(region.getMinimumPoint(), region.getMaximumPoint(), region.getPoints(),
+            settings.getDisplayBlockData().getAsString(), settings.getDisplayTileSize(), settings.getDisplayThickness(),
+            settings.getDisplayMaxTiles());
+    }
+
+    @NotNull
+    private String getKey(@NotNull World world, @NotNull ProtectedRegion region) {
+        return world.getName() + ":" + region.getId();
+    }
+
+    /**
+     * A tile of a wall: its origin, rotation around the y axis and size.
+     */
+    private record Tile(double x, double y, double z, float angle, float length, float height) {
+
+        private long chunkKey() {
+            return Chunk.getChunkKey((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+        }
+    }
+
+    /**
+     * The display entities of one region and the players they are shown to.
+     */
+    private final class RegionDisplay {
+
+        private final UUID worldId;
+        private final int signature;
+        private final Map<Long, List<Tile>> tilesByChunk = new HashMap<>();
+        private final Set<Tile> pending = new HashSet<>();
+        private final Map<Tile, BlockDisplay> entities = new HashMap<>();
+        private final Set<UUID> viewers = new HashSet<>();
+
+        private RegionDisplay(@NotNull World world, int signature) {
+            this.worldId = world.getUID();
+            this.signature = signature;
+        }
+
+        private void addTiles(@NotNull List<Tile> tiles) {
+            for (Tile tile : tiles) {
+                tilesByChunk.computeIfAbsent(tile.chunkKey(), k -> new ArrayList<>()).add(tile);
+            }
+            pending.addAll(tiles);
+        }
+
+        /**
+         * Queues the tiles of a chunk that just loaded, dropping entities removed with it.
+         */
+        private void queueChunk(long chunkKey) {
+            List<Tile> tiles = tilesByChunk.get(chunkKey);
+            if (tiles == null) {
+                return;
+            }
+            for (Tile tile : tiles) {
+                BlockDisplay entity = entities.get(tile);
+                if (entity == null || !entity.isValid()) {
+                    entities.remove(tile);
+                    pending.add(tile);
+                }
+            }
+        }
+
+        /**
+         * Spawns the queued tiles and shows them to the current viewers. Tiles in unloaded chunks
+         * are dropped from the queue so nothing is loaded, their chunk queues them again when it loads.
+         */
+        private void spawnMissing(@NotNull World world, @NotNull ForcefieldSettings settings) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Iterator<Tile> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Tile tile = iterator.next();
+                iterator.remove();
+                int chunkX = (int) Math.floor(tile.x()) >> 4;
+                int chunkZ = (int) Math.floor(tile.z()) >> 4;
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                BlockDisplay spawned = spawnTile(world, tile, settings);
+                entities.put(tile, spawned);
+                for (UUID viewerId : viewers) {
+                    Player viewer = plugin.getServer().getPlayer(viewerId);
+                    if (viewer != null) {
+                        viewer.showEntity(plugin, spawned);
+                    }
+                }
+            }
+        }
+
+        @NotNull
+        private BlockDisplay spawnTile(@NotNull World world, @NotNull Tile tile, @NotNull ForcefieldSettings settings) {
+            Location location = new Location(world, tile.x(), tile.y(), tile.z());
+            BlockData blockData = settings.getDisplayBlockData();
+            float thickness = settings.getDisplayThickness();
+            float viewRange = Math.max(1.0f, settings.getMaxRenderDistance() / 64.0f);
+
+            return world.spawn(location, BlockDisplay.class, display -> {
+                display.setVisibleByDefault(false);
+                display.setPersistent(false);
+                display.setBlock(blockData);
+                display.setBrightness(new Display.Brightness(15, 15));
+                display.setViewRange(viewRange);
+
+                // Centre the thin slab on the wall plane
+                Quaternionf rotation = new Quaternionf().rotateY(tile.angle());
+                Vector3f translation = rotation.transform(new Vector3f(0, 0, -thickness / 2));
+                display.setTransformation(new Transformation(translation, rotation,
+                    new Vector3f(tile.length(), tile.height(), thickness), new Quaternionf()));
+            });
+        }
+
+        private void show(@NotNull Player player) {
+            for (BlockDisplay entity : entities.values()) {
+                player.showEntity(plugin, entity);
+            }
+        }
+
+        private void hide(@NotNull Player player) {
+            for (BlockDisplay entity : entities.values()) {
+                player.hideEntity(plugin, entity);
+            }
+        }
+
+        private void remove() {
+            Iterator<BlockDisplay> iterator = entities.values().iterator();
+            while (iterator.hasNext()) {
+                iterator.next().remove();
+                iterator.remove();
+            }
+        }
+    }
+}
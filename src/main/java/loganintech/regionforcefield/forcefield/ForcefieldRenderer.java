@@ -6,26 +6,53 @@ import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import loganintech.regionforcefield.RegionForcefieldPlugin;
-import org.bukkit.Color;
+import loganintech.regionforcefield.profile.ForcefieldBlockBatchEvent;
+import loganintech.regionforcefield.profile.ForcefieldParticleBatchEvent;
+import loganintech.regionforcefield.region.RegionSettingsCache;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Renders particle forcefields around protected regions.
+ * <p>
+ * Rendering happens in two phases: {@link #computeForcefield} turns region geometry into a
+ * {@link RenderPlan} and is safe to call from worker threads, while {@link #sendPlan} checks the
+ * world and sends the packets and must run on the main thread.
  */
 public class ForcefieldRenderer {
 
     private final RegionForcefieldPlugin plugin;
     private final PlayerBlockTracker blockTracker;
+    private final RegionViewerIndex viewerIndex = new RegionViewerIndex();
+    private final RegionSettingsCache regionSettings = new RegionSettingsCache();
+    private final HeightmapCache heightmaps;
+    private ChunkInjectionIndex chunkInjection;
+    private final Map<UUID, Set<Location>> pendingResends = new HashMap<>();
+    private final Map<UUID, Set<Long>> awaitingChunks = new HashMap<>();
+    private final Map<UUID, BlockData> sentBlockData = new HashMap<>();
+    private volatile ForcefieldSettings settings;
+    private boolean resendScheduled;
+    private final Map<UUID, EvictionList> evictionLists = new HashMap<>();
 
     /**
      * Creates a new forcefield renderer.
@@ -35,45 +62,89 @@ public class ForcefieldRenderer {
     public ForcefieldRenderer(@NotNull RegionForcefieldPlugin plugin) {
         this.plugin = plugin;
         this.blockTracker = new PlayerBlockTracker();
+        this.heightmaps = new HeightmapCache(plugin.getLogger());
+        reloadSettings();
     }
 
     /**
-     * Gets the particle spacing from config.
+     * Re-reads the rendering settings from the config.
+     * Must be called whenever the config changes, cycles reuse the snapshot until then.
+     */
+    public void reloadSettings() {
+        this.settings = ForcefieldSettings.fromConfig(plugin.getConfig(), plugin.getLogger());
+    }
+
+    /**
+     * Replaces the rendering settings with a snapshot built by a reload.
+     * Fake blocks are not touched here, the next plan sent to each player re-diffs them.
      *
-     * @return particle spacing in blocks
+     * @param settings the new settings
      */
-    private double getParticleSpacing() {
-        return plugin.getConfig().getDouble("particle-spacing", 0.5);
+    public void setSettings(@NotNull ForcefieldSettings settings) {
+        this.settings = settings;
     }
 
     /**
-     * Gets the particle dust options from config.
+     * Gets the current rendering settings snapshot.
      *
-     * @return particle dust options
+     * @return the settings
      */
-    private Particle.DustOptions getDustOptions() {
-        int red = plugin.getConfig().getInt("particle-color.red", 147);
-        int green = plugin.getConfig().getInt("particle-color.green", 112);
-        int blue = plugin.getConfig().getInt("particle-color.blue", 219);
-        float size = (float) plugin.getConfig().getDouble("particle-size", 1.0);
-        return new Particle.DustOptions(Color.fromRGB(red, green, blue), size);
+    @NotNull
+    public ForcefieldSettings getSettings() {
+        return settings;
     }
 
     /**
-     * Gets the block material from config.
+     * Gets the index of which players render which regions.
      *
-     * @return block data for the configured material
+     * @return the region viewer index
      */
-    private BlockData getBlockData() {
-        String materialName = plugin.getConfig().getString("block-material", "PURPLE_STAINED_GLASS_PANE");
-        Material material;
-        try {
-            material = Material.valueOf(materialName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid block material '" + materialName + "', using PURPLE_STAINED_GLASS_PANE");
-            material = Material.PURPLE_STAINED_GLASS_PANE;
+    @NotNull
+    public RegionViewerIndex getViewerIndex() {
+        return viewerIndex;
+    }
+
+    /**
+     * Gets the per-region settings derived from forcefield flags.
+     *
+     * @return the region settings cache
+     */
+    @NotNull
+    public RegionSettingsCache getRegionSettings() {
+        return regionSettings;
+    }
+
+    /**
+     * Gets the cached terrain heights used for occlusion culling.
+     *
+     * @return the heightmap cache
+     */
+    @NotNull
+    public HeightmapCache getHeightmaps() {
+        return heightmaps;
+    }
+
+    /**
+     * Starts publishing fake blocks for a packet injector to write into chunk packets.
+     * Once enabled, chunk resends no longer wipe tracked fake blocks.
+     *
+     * @return the index the injector reads from
+     */
+    @NotNull
+    public ChunkInjectionIndex enableChunkInjection() {
+        if (chunkInjection == null) {
+            chunkInjection = new ChunkInjectionIndex();
         }
-        return material.createBlockData();
+        return chunkInjection;
+    }
+
+    /**
+     * Checks whether fake blocks are written into outgoing chunk packets.
+     *
+     * @return true if a packet injector is active
+     */
+    public boolean isChunkInjectionEnabled() {
+        return chunkInjection != null;
     }
 
     /**
@@ -87,165 +158,280 @@ public class ForcefieldRenderer {
     }
 
     /**
-     * Renders a forcefield around a region for a specific player.
+     * Computes the forcefield geometry of a region into a render plan.
+     * Only reads the region and the settings snapshot, so it can run off the main thread.
      *
-     * @param player the player to show the forcefield to
-     * @param region the region to render
-     * @param world  the world the region is in
-     * @return set of block locations that were rendered
+     * @param region   the region to render
+     * @param plan     the plan to add particles and blocks to
+     * @param settings the settings snapshot for this cycle
      */
-    @NotNull
-    public Set<Location> renderForcefield(@NotNull Player player, @NotNull ProtectedRegion region, @NotNull World world) {
-        Set<Location> newBlocks = new HashSet<>();
-
+    public void computeForcefield(@NotNull ProtectedRegion region, @NotNull RenderPlan plan,
+                                  @NotNull ForcefieldSettings settings) {
         try {
-            plugin.debug("Rendering forcefield for region " + region.getId() + " to player " + player.getName());
-
             if (region instanceof ProtectedCuboidRegion) {
-                renderCuboidForcefield(player, (ProtectedCuboidRegion) region, world, newBlocks);
+                renderCuboidForcefield((ProtectedCuboidRegion) region, plan, settings);
             } else if (region instanceof ProtectedPolygonalRegion) {
-                renderPolygonalForcefield(player, (ProtectedPolygonalRegion) region, world, newBlocks);
+                renderPolygonalForcefield((ProtectedPolygonalRegion) region, plan, settings);
             } else {
                 // For other region types, fall back to rendering a bounding box
                 plugin.debug("Using bounding box for region type: " + region.getClass().getSimpleName());
-                renderBoundingBoxForcefield(player, region, world, newBlocks);
+                renderBoundingBoxForcefield(region, plan, settings);
             }
-
-            plugin.debug("Rendered " + newBlocks.size() + " blocks for region " + region.getId());
+            plan.addRegion(region);
         } catch (Exception e) {
             plugin.getLogger().warning("Error rendering forcefield for region " + region.getId() + ": " + e.getMessage());
             e.printStackTrace();
         }
-
-        return newBlocks;
     }
 
     /**
      * Renders a forcefield for a cuboid region.
      */
-    private void renderCuboidForcefield(@NotNull Player player, @NotNull ProtectedCuboidRegion region,
-                                       @NotNull World world, @NotNull Set<Location> blocks) {
+    private void renderCuboidForcefield(@NotNull ProtectedCuboidRegion region, @NotNull RenderPlan plan,
+                                        @NotNull ForcefieldSettings settings) {
         BlockVector3 min = region.getMinimumPoint();
         BlockVector3 max = region.getMaximumPoint();
 
         // Render vertical edges
-        renderVerticalEdges(player, world, min, max, blocks);
+        renderVerticalEdges(plan, settings, min, max);
 
         // Render horizontal edges at top and bottom
-        renderHorizontalEdges(player, world, min, max, blocks);
+        renderHorizontalEdges(plan, settings, min, max);
 
         // Optionally render faces (walls)
-        if (plugin.getConfig().getBoolean("render-walls", true)) {
-            renderWalls(player, world, min, max, blocks);
+        if (settings.isRenderWalls()) {
+            renderWalls(plan, settings, min, max);
         }
     }
 
     /**
      * Renders a forcefield for a polygonal region.
      */
-    private void renderPolygonalForcefield(@NotNull Player player, @NotNull ProtectedPolygonalRegion region,
-                                          @NotNull World world, @NotNull Set<Location> blocks) {
+    private void renderPolygonalForcefield(@NotNull ProtectedPolygonalRegion region, @NotNull RenderPlan plan,
+                                           @NotNull ForcefieldSettings settings) {
         List<BlockVector2> points = region.getPoints();
         int minY = region.getMinimumPoint().y();
         int maxY = region.getMaximumPoint().y();
 
-        // Render vertical walls between each pair of points
         for (int i = 0; i < points.size(); i++) {
             BlockVector2 point1 = points.get(i);
             BlockVector2 point2 = points.get((i + 1) % points.size());
 
-            renderVerticalWall(player, world, point1.x(), point1.z(), point2.x(), point2.z(), minY, maxY, blocks);
+            if (settings.isRenderWalls()) {
+                // Render vertical walls between each pair of points
+                renderVerticalWall(plan, settings, point1.x(), point1.z(), point2.x(), point2.z(), minY, maxY);
+            } else {
+                // Wireframe: a pillar at every vertex plus the bottom and top outlines
+                renderLine(plan, settings, point1.x(), minY, point1.z(), point1.x(), maxY, point1.z());
+                renderLine(plan, settings, point1.x(), minY, point1.z(), point2.x(), minY, point2.z());
+                renderLine(plan, settings, point1.x(), maxY, point1.z(), point2.x(), maxY, point2.z());
+            }
         }
     }
 
     /**
      * Renders a bounding box forcefield for unsupported region types.
      */
-    private void renderBoundingBoxForcefield(@NotNull Player player, @NotNull ProtectedRegion region,
-                                            @NotNull World world, @NotNull Set<Location> blocks) {
+    private void renderBoundingBoxForcefield(@NotNull ProtectedRegion region, @NotNull RenderPlan plan,
+                                             @NotNull ForcefieldSettings settings) {
         BlockVector3 min = region.getMinimumPoint();
         BlockVector3 max = region.getMaximumPoint();
 
-        renderVerticalEdges(player, world, min, max, blocks);
-        renderHorizontalEdges(player, world, min, max, blocks);
+        renderVerticalEdges(plan, settings, min, max);
+        renderHorizontalEdges(plan, settings, min, max);
     }
 
     /**
      * Renders the vertical edges of a cuboid.
      */
-    private void renderVerticalEdges(@NotNull Player player, @NotNull World world,
-                                     @NotNull BlockVector3 min, @NotNull BlockVector3 max,
-                                     @NotNull Set<Location> blocks) {
+    private void renderVerticalEdges(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                     @NotNull BlockVector3 min, @NotNull BlockVector3 max) {
         // Four vertical edges
-        renderLine(player, world, min.x(), min.y(), min.z(), min.x(), max.y(), min.z(), blocks);
-        renderLine(player, world, max.x(), min.y(), min.z(), max.x(), max.y(), min.z(), blocks);
-        renderLine(player, world, min.x(), min.y(), max.z(), min.x(), max.y(), max.z(), blocks);
-        renderLine(player, world, max.x(), min.y(), max.z(), max.x(), max.y(), max.z(), blocks);
+        renderLine(plan, settings, min.x(), min.y(), min.z(), min.x(), max.y(), min.z());
+        renderLine(plan, settings, max.x(), min.y(), min.z(), max.x(), max.y(), min.z());
+        renderLine(plan, settings, min.x(), min.y(), max.z(), min.x(), max.y(), max.z());
+        renderLine(plan, settings, max.x(), min.y(), max.z(), max.x(), max.y(), max.z());
     }
 
     /**
      * Renders the horizontal edges of a cuboid.
      */
-    private void renderHorizontalEdges(@NotNull Player player, @NotNull World world,
-                                       @NotNull BlockVector3 min, @NotNull BlockVector3 max,
-                                       @NotNull Set<Location> blocks) {
+    private void renderHorizontalEdges(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                       @NotNull BlockVector3 min, @NotNull BlockVector3 max) {
         // Bottom edges
-        renderLine(player, world, min.x(), min.y(), min.z(), max.x(), min.y(), min.z(), blocks);
-        renderLine(player, world, min.x(), min.y(), max.z(), max.x(), min.y(), max.z(), blocks);
-        renderLine(player, world, min.x(), min.y(), min.z(), min.x(), min.y(), max.z(), blocks);
-        renderLine(player, world, max.x(), min.y(), min.z(), max.x(), min.y(), max.z(), blocks);
+        renderLine(plan, settings, min.x(), min.y(), min.z(), max.x(), min.y(), min.z());
+        renderLine(plan, settings, min.x(), min.y(), max.z(), max.x(), min.y(), max.z());
+        renderLine(plan, settings, min.x(), min.y(), min.z(), min.x(), min.y(), max.z());
+        renderLine(plan, settings, max.x(), min.y(), min.z(), max.x(), min.y(), max.z());
 
         // Top edges
-        renderLine(player, world, min.x(), max.y(), min.z(), max.x(), max.y(), min.z(), blocks);
-        renderLine(player, world, min.x(), max.y(), max.z(), max.x(), max.y(), max.z(), blocks);
-        renderLine(player, world, min.x(), max.y(), min.z(), min.x(), max.y(), max.z(), blocks);
-        renderLine(player, world, max.x(), max.y(), min.z(), max.x(), max.y(), max.z(), blocks);
+        renderLine(plan, settings, min.x(), max.y(), min.z(), max.x(), max.y(), min.z());
+        renderLine(plan, settings, min.x(), max.y(), max.z(), max.x(), max.y(), max.z());
+        renderLine(plan, settings, min.x(), max.y(), min.z(), min.x(), max.y(), max.z());
+        renderLine(plan, settings, max.x(), max.y(), min.z(), max.x(), max.y(), max.z());
     }
 
     /**
      * Renders the walls (faces) of a cuboid.
      */
-    private void renderWalls(@NotNull Player player, @NotNull World world,
-                            @NotNull BlockVector3 min, @NotNull BlockVector3 max,
-                            @NotNull Set<Location> blocks) {
+    private void renderWalls(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                             @NotNull BlockVector3 min, @NotNull BlockVector3 max) {
         // North wall (min Z)
-        renderVerticalWall(player, world, min.x(), min.z(), max.x(), min.z(), min.y(), max.y(), blocks);
+        renderVerticalWall(plan, settings, min.x(), min.z(), max.x(), min.z(), min.y(), max.y());
 
         // South wall (max Z)
-        renderVerticalWall(player, world, min.x(), max.z(), max.x(), max.z(), min.y(), max.y(), blocks);
+        renderVerticalWall(plan, settings, min.x(), max.z(), max.x(), max.z(), min.y(), max.y());
 
         // West wall (min X)
-        renderVerticalWall(player, world, min.x(), min.z(), min.x(), max.z(), min.y(), max.y(), blocks);
+        renderVerticalWall(plan, settings, min.x(), min.z(), min.x(), max.z(), min.y(), max.y());
 
         // East wall (max X)
-        renderVerticalWall(player, world, max.x(), min.z(), max.x(), max.z(), min.y(), max.y(), blocks);
+        renderVerticalWall(plan, settings, max.x(), min.z(), max.x(), max.z(), min.y(), max.y());
     }
 
     /**
      * Renders a vertical wall between two points.
      */
-    private void renderVerticalWall(@NotNull Player player, @NotNull World world,
+    private void renderVerticalWall(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
                                     double x1, double z1, double x2, double z2,
-                                    double minY, double maxY, @NotNull Set<Location> blocks) {
-        double particleSpacing = getParticleSpacing();
+                                    double minY, double maxY) {
+        // Skip walls entirely outside the viewer's height band
+        double bandMinY = plan.getBandMinY();
+        double bandMaxY = plan.getBandMaxY();
+        if (bandMinY > maxY || bandMaxY < minY) {
+            return;
+        }
+
+        // Skip walls buried in a neighbouring region, and only check points near one
+        if (!plan.clipSegment(Math.min(x1, x2), minY, Math.min(z1, z2), Math.max(x1, x2), maxY, Math.max(z1, z2))) {
+            return;
+        }
+
         double distance = Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(z2 - z1, 2));
-        int horizontalSteps = (int) Math.ceil(distance / particleSpacing);
-        int verticalSteps = (int) Math.ceil((maxY - minY) / particleSpacing);
-        double blockSpacing = plugin.getConfig().getDouble("block-spacing", 1.0);
+        int blockInterval = settings.isRenderBlocks() ? settings.getBlockInterval() * plan.getDensityStride() : 0;
+        boolean renderParticles = settings.isRenderParticles() && plan.acceptsParticles();
+        boolean pointParticles = renderParticles && settings.getParticleMode() == ParticleMode.POINTS;
+
+        // Throttling spreads particles out but keeps blocks on their own grid, so they don't move
+        double gridSpacing = settings.getBlockGridSpacing();
+        if (settings.getParticleSpacing() == gridSpacing) {
+            renderWallGrid(plan, settings, x1, z1, x2, z2, minY, maxY, distance, gridSpacing, pointParticles, blockInterval);
+        } else {
+            if (pointParticles) {
+                renderWallGrid(plan, settings, x1, z1, x2, z2, minY, maxY, distance, settings.getParticleSpacing(), true, 0);
+            }
+            renderWallGrid(plan, settings, x1, z1, x2, z2, minY, maxY, distance, gridSpacing, false, blockInterval);
+        }
+
+        if (renderParticles && !pointParticles) {
+            emitWallParticles(plan, settings, x1, z1, x2, z2, minY, maxY, distance);
+        }
+    }
+
+    /**
+     * Walks a grid over a vertical wall, adding a particle at every point and a block every
+     * {@code blockInterval} points in both directions. Without particles only the block points are visited.
+     */
+    private void renderWallGrid(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                double x1, double z1, double x2, double z2, double minY, double maxY,
+                                double distance, double spacing, boolean particles, int blockInterval) {
+        if (!particles && blockInterval == 0) {
+            return;
+        }
+
+        double bandMinY = plan.getBandMinY();
+        double bandMaxY = plan.getBandMaxY();
+        int horizontalSteps = (int) Math.ceil(distance / spacing);
+        int verticalSteps = (int) Math.ceil((maxY - minY) / spacing);
+        int step = particles ? 1 : blockInterval;
 
-        for (int i = 0; i <= horizontalSteps; i++) {
+        // Clip rows to the band without moving them, so points stay put while the viewer moves up and down
+        int lastStep = verticalSteps;
+        if (bandMaxY < maxY && verticalSteps > 0) {
+            lastStep = (int) Math.floor((bandMaxY - minY) / (maxY - minY) * verticalSteps);
+        }
+
+        for (int i = 0; i <= horizontalSteps; i += step) {
             double t = horizontalSteps > 0 ? (double) i / horizontalSteps : 0;
             double x = x1 + (x2 - x1) * t;
             double z = z1 + (z2 - z1) * t;
 
-            for (int j = 0; j <= verticalSteps; j++) {
-                double y = minY + (maxY - minY) * ((double) j / verticalSteps);
-                spawnParticle(player, world, x, y, z);
+            // Start the column at the terrain surface or the band, everything below it is buried or out of reach
+            int firstStep = 0;
+            double lowestY = Math.max(plan.getVisibleFromY(x, z), bandMinY);
+            if (lowestY > minY && verticalSteps > 0) {
+                firstStep = (int) Math.ceil((lowestY - minY) / (maxY - minY) * verticalSteps);
+                firstStep = (firstStep + step - 1) / step * step;
+            }
+
+            for (int j = firstStep; j <= lastStep; j += step) {
+                double y = verticalSteps > 0 ? minY + (maxY - minY) * ((double) j / verticalSteps) : minY;
+                if (particles) {
+                    plan.addParticle(x, y, z);
+                }
 
                 // Place blocks at intervals
-                if (i % ((int) Math.max(1, blockSpacing / particleSpacing)) == 0 &&
-                    j % ((int) Math.max(1, blockSpacing / particleSpacing)) == 0) {
-                    placeBlock(player, world, x, y, z, blocks);
+                if (blockInterval > 0 && i % blockInterval == 0 && j % blockInterval == 0) {
+                    addBlock(plan, settings, x, y, z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Covers a vertical wall with particles using the coalesced or sparkle mode.
+     * Either way the number of packets depends on the wall, not on its area.
+     */
+    private void emitWallParticles(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                   double x1, double z1, double x2, double z2,
+                                   double minY, double maxY, double length) {
+        double height = maxY - minY;
+
+        if (settings.getParticleMode() == ParticleMode.SPARKLE) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double sparkleMinY = Math.max(minY, plan.getBandMinY());
+            double sparkleHeight = Math.min(maxY, plan.getBandMaxY()) - sparkleMinY;
+            for (int n = 0; n < settings.getSparkleParticles(); n++) {
+                double t = random.nextDouble();
+                double x = x1 + (x2 - x1) * t;
+                double y = sparkleMinY + sparkleHeight * random.nextDouble();
+                double z = z1 + (z2 - z1) * t;
+                if (!plan.isOccluded(x, y, z)) {
+                    plan.addParticle(x, y, z);
+                }
+            }
+            return;
+        }
+
+        // Split the wall into cells and send one packet per cell
+        double spacing = settings.getParticleSpacing();
+        double cellSize = settings.getCoalesceCellSize();
+        int columns = Math.max(1, (int) Math.ceil(length / cellSize));
+        int rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        double cellLength = length / columns;
+        double cellHeight = height / rows;
+        int count = Math.min(settings.getCoalesceMaxCount(),
+            Math.max(1, (int) Math.ceil(cellLength / spacing) * (int) Math.ceil(cellHeight / spacing)));
+
+        // The client spreads particles with a gaussian, a quarter of the cell keeps most of them inside it
+        double directionX = length > 0 ? (x2 - x1) / length : 0;
+        double directionZ = length > 0 ? (z2 - z1) / length : 0;
+        double offsetX = Math.abs(directionX) * cellLength / 4;
+        double offsetZ = Math.abs(directionZ) * cellLength / 4;
+        double offsetY = cellHeight / 4;
+
+        for (int column = 0; column < columns; column++) {
+            double t = (column + 0.5) / columns;
+            double x = x1 + (x2 - x1) * t;
+            double z = z1 + (z2 - z1) * t;
+            for (int row = 0; row < rows; row++) {
+                // Skip cells outside the height band and cells that are buried up to their top
+                double cellTop = minY + cellHeight * (row + 1);
+                if (cellTop < plan.getBandMinY() || cellTop - cellHeight > plan.getBandMaxY()) {
+                    continue;
+                }
+                if (!plan.isOccluded(x, cellTop, z)) {
+                    plan.addParticles(x, minY + cellHeight * (row + 0.5), z, count, offsetX, offsetY, offsetZ);
                 }
             }
         }
@@ -254,76 +440,563 @@ public class ForcefieldRenderer {
     /**
      * Renders a line of particles between two points.
      */
-    private void renderLine(@NotNull Player player, @NotNull World world,
-                           double x1, double y1, double z1,
-                           double x2, double y2, double z2,
-                           @NotNull Set<Location> blocks) {
-        double particleSpacing = getParticleSpacing();
+    private void renderLine(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                            double x1, double y1, double z1,
+                            double x2, double y2, double z2) {
+        // Skip lines entirely outside the viewer's height band
+        if (Math.max(y1, y2) < plan.getBandMinY() || Math.min(y1, y2) > plan.getBandMaxY()) {
+            return;
+        }
+        if (!plan.clipSegment(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+            Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2))) {
+            return;
+        }
+
         double distance = Math.sqrt(
             Math.pow(x2 - x1, 2) +
             Math.pow(y2 - y1, 2) +
             Math.pow(z2 - z1, 2)
         );
 
-        int steps = (int) Math.ceil(distance / particleSpacing);
-        double blockSpacing = plugin.getConfig().getDouble("block-spacing", 1.0);
+        int blockInterval = settings.isRenderBlocks() ? settings.getBlockInterval() * plan.getDensityStride() : 0;
+        boolean renderParticles = settings.isRenderParticles() && plan.acceptsParticles();
+        boolean pointParticles = renderParticles && settings.getParticleMode() == ParticleMode.POINTS;
+
+        // Throttling spreads particles out but keeps blocks on their own grid, so they don't move
+        double gridSpacing = settings.getBlockGridSpacing();
+        if (settings.getParticleSpacing() == gridSpacing) {
+            renderLineSteps(plan, settings, x1, y1, z1, x2, y2, z2, distance, gridSpacing, pointParticles, blockInterval);
+        } else {
+            if (pointParticles) {
+                renderLineSteps(plan, settings, x1, y1, z1, x2, y2, z2, distance, settings.getParticleSpacing(), true, 0);
+            }
+            renderLineSteps(plan, settings, x1, y1, z1, x2, y2, z2, distance, gridSpacing, false, blockInterval);
+        }
+
+        if (renderParticles && !pointParticles) {
+            emitLineParticles(plan, settings, x1, y1, z1, x2, y2, z2, distance);
+        }
+    }
+
+    /**
+     * Walks a line in steps, adding a particle at every step and a block every {@code blockInterval} steps.
+     * Without particles only the block steps are visited.
+     */
+    private void renderLineSteps(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                 double x1, double y1, double z1, double x2, double y2, double z2,
+                                 double distance, double spacing, boolean particles, int blockInterval) {
+        if (!particles && blockInterval == 0) {
+            return;
+        }
 
-        for (int i = 0; i <= steps; i++) {
+        int steps = (int) Math.ceil(distance / spacing);
+        int step = particles ? 1 : blockInterval;
+        for (int i = 0; i <= steps; i += step) {
             double t = steps > 0 ? (double) i / steps : 0;
             double x = x1 + (x2 - x1) * t;
             double y = y1 + (y2 - y1) * t;
             double z = z1 + (z2 - z1) * t;
 
-            spawnParticle(player, world, x, y, z);
+            if (!plan.isInBand(y) || plan.isOccluded(x, y, z)) {
+                continue;
+            }
+
+            if (particles) {
+                plan.addParticle(x, y, z);
+            }
 
             // Place blocks at intervals
-            if (i % ((int) Math.max(1, blockSpacing / particleSpacing)) == 0) {
-                placeBlock(player, world, x, y, z, blocks);
+            if (blockInterval > 0 && i % blockInterval == 0) {
+                addBlock(plan, settings, x, y, z);
             }
         }
     }
 
     /**
-     * Spawns a single particle at the specified location for a player.
+     * Covers a line with particles using the coalesced or sparkle mode.
+     * Edges get a quarter of a wall's sparkle particles.
      */
-    private void spawnParticle(@NotNull Player player, @NotNull World world, double x, double y, double z) {
-        if (!plugin.getConfig().getBoolean("render-particles", true)) {
+    private void emitLineParticles(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                                   double x1, double y1, double z1,
+                                   double x2, double y2, double z2, double length) {
+        if (settings.getParticleMode() == ParticleMode.SPARKLE) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int particles = Math.max(1, (settings.getSparkleParticles() + 3) / 4);
+            for (int n = 0; n < particles; n++) {
+                double t = random.nextDouble();
+                double x = x1 + (x2 - x1) * t;
+                double y = y1 + (y2 - y1) * t;
+                double z = z1 + (z2 - z1) * t;
+                if (plan.isInBand(y) && !plan.isOccluded(x, y, z)) {
+                    plan.addParticle(x, y, z);
+                }
+            }
             return;
         }
 
-        Location location = new Location(world, x, y, z);
-        player.spawnParticle(Particle.DUST, location, 1, 0, 0, 0, 0, getDustOptions());
+        // Split the line into segments and send one packet per segment
+        int segments = Math.max(1, (int) Math.ceil(length / settings.getCoalesceCellSize()));
+        double segmentLength = length / segments;
+        int count = Math.min(settings.getCoalesceMaxCount(),
+            Math.max(1, (int) Math.ceil(segmentLength / settings.getParticleSpacing())));
+        double spread = length > 0 ? segmentLength / 4 / length : 0;
+
+        for (int segment = 0; segment < segments; segment++) {
+            double t = (segment + 0.5) / segments;
+            double x = x1 + (x2 - x1) * t;
+            double y = y1 + (y2 - y1) * t;
+            double z = z1 + (z2 - z1) * t;
+            if (plan.isInBand(y) && !plan.isOccluded(x, y, z)) {
+                plan.addParticles(x, y, z, count,
+                    Math.abs(x2 - x1) * spread, Math.abs(y2 - y1) * spread, Math.abs(z2 - z1) * spread);
+            }
+        }
     }
 
     /**
-     * Places a fake block at the specified location if it's air.
+     * Adds a candidate fake block to the plan if blocks are enabled.
+     */
+    private void addBlock(@NotNull RenderPlan plan, @NotNull ForcefieldSettings settings,
+                          double x, double y, double z) {
+        if (settings.isRenderBlocks()) {
+            plan.addBlock(x, y, z);
+        }
+    }
+
+    /**
+     * Sends a computed plan to a player: spawns its particles, places its fake blocks where
+     * there is air and reverts fake blocks that are no longer part of the forcefield.
+     * Must be called on the main thread.
      *
-     * @param player the player to send the block to
-     * @param world  the world
-     * @param x      the x coordinate
-     * @param y      the y coordinate
-     * @param z      the z coordinate
-     * @param blocks the set to add this block location to
-     */
-    private void placeBlock(@NotNull Player player, @NotNull World world,
-                           double x, double y, double z, @NotNull Set<Location> blocks) {
-        if (!plugin.getConfig().getBoolean("render-blocks", true)) {
-            plugin.debug("Skipping block render (render-blocks is false)");
+     * @param player   the player to send to
+     * @param plan     the computed plan
+     * @param settings the settings snapshot the plan was computed with
+     */
+    public void sendPlan(@NotNull Player player, @NotNull RenderPlan plan, @NotNull ForcefieldSettings settings) {
+        // The send records which chunks the player is still missing
+        awaitingChunks.remove(player.getUniqueId());
+
+        World world = plan.getWorld();
+        if (world != player.getWorld()) {
+            // The player changed worlds since the plan was computed, the next cycle catches up
             return;
         }
 
-        Location location = new Location(world, Math.floor(x), Math.floor(y), Math.floor(z));
+        // Blocks that arrived inside chunk packets are already on the client
+        trackInjected(player, world);
+
+        ForcefieldParticleBatchEvent particleEvent = new ForcefieldParticleBatchEvent();
+        particleEvent.begin();
+        Particle.DustOptions dustOptions = settings.getDustOptions();
+        boolean occlusionCulling = settings.isOcclusionCulling();
+        Location particleLocation = new Location(world, 0, 0, 0);
+        int spawned = 0;
+        for (int i = 0; i < plan.getParticleCount(); i++) {
+            double x = plan.getParticleX(i);
+            double y = plan.getParticleY(i);
+            double z = plan.getParticleZ(i);
+            if (!isChunkVisible(player, world, x, z)) {
+                continue;
+            }
+            if (occlusionCulling && isEnclosed(world, (int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z), true)) {
+                continue;
+            }
+            particleLocation.set(x, y, z);
+            player.spawnParticle(Particle.DUST, particleLocation, plan.getParticleAmount(i),
+                plan.getParticleOffsetX(i), plan.getParticleOffsetY(i), plan.getParticleOffsetZ(i), 0, dustOptions);
+            spawned++;
+        }
+        particleEvent.finish(player.getName(), plan.getParticleCount(), spawned);
+
+        ForcefieldBlockBatchEvent blockEvent = new ForcefieldBlockBatchEvent();
+        blockEvent.begin();
+        Set<Location> newBlocks = new HashSet<>();
+        List<Location> unsentBlocks = chunkInjection != null ? new ArrayList<>() : null;
+        BlockData blockData = settings.getBlockData();
+        // After a material change the kept blocks are re-sent too, everything else is still a diff
+        boolean materialChanged = !blockData.equals(sentBlockData.put(player.getUniqueId(), blockData));
+        int sent = 0;
+        int limit = settings.getMaxBlocksPerPlayer() > 0 ? settings.getMaxBlocksPerPlayer() : Integer.MAX_VALUE;
+        int free = getFreeBlocks(player, settings.getMaxBlocksTotal());
+        Collection<Location> candidates = plan.getBlocks();
+        if (candidates.size() > Math.min(limit, free)) {
+            // Over a cap the farthest candidates are dropped, so order them nearest first
+            List<Location> ordered = orderBlocks(player, candidates);
+            int wanted = Math.min(limit, ordered.size());
+            if (wanted > free) {
+                // Nearer blocks win over the farthest blocks of everyone else, instead of first come first served
+                limit = claimBlocks(player, ordered, free, wanted);
+            }
+            candidates = ordered;
+        }
+        for (Location location : candidates) {
+            if (newBlocks.size() + (unsentBlocks != null ? unsentBlocks.size() : 0) >= limit) {
+                plugin.debug("Fake block cap of " + limit + " reached for " + player.getName());
+                break;
+            }
+            if (placeBlock(player, location, blockData, occlusionCulling, materialChanged, newBlocks, unsentBlocks)) {
+                sent++;
+            }
+        }
+
+        int reverted = updateBlocks(player, newBlocks);
+        evictionLists.remove(player.getUniqueId());
+        blockEvent.finish(player.getName(), plan.getBlocks().size(), sent, reverted, newBlocks.size());
+
+        // Let the injector write the blocks into chunk packets, including chunks the player hasn't received yet
+        if (chunkInjection != null) {
+            unsentBlocks.addAll(newBlocks);
+            chunkInjection.publish(player.getUniqueId(), world, unsentBlocks, blockData);
+        }
+    }
+
+    /**
+     * Gets how many fake blocks a player may have after this send without displacing anyone else's.
+     */
+    private int getFreeBlocks(@NotNull Player player, int maxTotal) {
+        if (maxTotal <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        int othersTracked = blockTracker.getTrackedCount() - blockTracker.getBlockCount(player.getUniqueId());
+        return Math.max(0, maxTotal - othersTracked);
+    }
+
+    /**
+     * Makes room under the server-wide cap for a player's candidates that are nearer to them than the
+     * farthest fake blocks of other players are to theirs, reverting those blocks.
+     *
+     * @param candidates the player's candidate blocks, nearest first
+     * @param free       how many blocks the player may have without displacing anyone
+     * @param wanted     how many blocks the player would have without the server-wide cap
+     * @return how many blocks the player may have now
+     */
+    private int claimBlocks(@NotNull Player player, @NotNull List<Location> candidates, int free, int wanted) {
+        Location viewer = player.getLocation();
+        // Own blocks are re-diffed by this send, so only other players' blocks can be evicted
+        PriorityQueue<EvictionList> queue = getEvictionQueue(player);
+        Map<Player, List<Location>> evicted = new HashMap<>();
+        int granted = free;
+        while (granted < wanted) {
+            EvictionList farthest = queue.peek();
+            if (farthest == null || distanceSquared(candidates.get(granted), viewer) >= farthest.peek().distanceSquared()) {
+                break;
+            }
+            TrackedBlock block = pollEvictable(queue);
+            evicted.computeIfAbsent(block.player(), k -> new ArrayList<>()).add(block.location());
+            granted++;
+        }
+
+        for (Map.Entry<Player, List<Location>> entry : evicted.entrySet()) {
+            evictBlocks(entry.getKey(), entry.getValue());
+        }
+        if (granted > free) {
+            plugin.debug("Reverted " + (granted - free) + " far fake blocks of other players to make room for " + player.getName());
+        }
+        return granted;
+    }
+
+    /**
+     * Merges the eviction lists of every player with fake blocks into a queue ordered by each list's farthest
+     * remaining block. Only the lists are ranked, their blocks were ranked when the list was built.
+     *
+     * @param excluded a player whose blocks must not be evicted, or null
+     */
+    @NotNull
+    private PriorityQueue<EvictionList> getEvictionQueue(@Nullable Player excluded) {
+        int tick = plugin.getServer().getCurrentTick();
+        PriorityQueue<EvictionList> queue = new PriorityQueue<>(
+            Comparator.comparingDouble((EvictionList list) -> list.peek().distanceSquared()).reversed());
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (player == excluded || blockTracker.getBlockCount(player.getUniqueId()) == 0) {
+                continue;
+            }
+            EvictionList list = getEvictionList(player, tick);
+            if (list.skipReverted()) {
+                queue.add(list);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Takes the farthest block off the queue, keeping its list queued while it has blocks left.
+     */
+    @NotNull
+    private TrackedBlock pollEvictable(@NotNull PriorityQueue<EvictionList> queue) {
+        EvictionList list = queue.poll();
+        TrackedBlock block = list.peek();
+        list.cursor++;
+        if (list.skipReverted()) {
+            queue.add(list);
+        }
+        return block;
+    }
+
+    /**
+     * Gets a player's fake blocks ranked farthest from them first. A list is ranked at most once per tick
+     * and dropped when the player's blocks are re-sent, so every send of a cycle competes against the same order
+     * and only players that are actually evicted from get ranked.
+     */
+    @NotNull
+    private EvictionList getEvictionList(@NotNull Player player, int tick) {
+        EvictionList list = evictionLists.get(player.getUniqueId());
+        if (list != null && list.tick == tick) {
+            return list;
+        }
+
+        Location viewer = player.getLocation();
+        Set<Location> blocks = blockTracker.getBlocks(player);
+        List<TrackedBlock> ranked = new ArrayList<>(blocks.size());
+        for (Location location : blocks) {
+            ranked.add(new TrackedBlock(player, location, distanceSquared(location, viewer)));
+        }
+        ranked.sort(Comparator.comparingDouble(TrackedBlock::distanceSquared).reversed());
+        list = new EvictionList(player, ranked, tick);
+        evictionLists.put(player.getUniqueId(), list);
+        return list;
+    }
+
+    /**
+     * Orders candidate blocks nearest first, so a cap drops the farthest ones.
+     */
+    @NotNull
+    private List<Location> orderBlocks(@NotNull Player player, @NotNull Collection<Location> candidates) {
+        Location viewer = player.getLocation();
+        List<Location> ordered = new ArrayList<>(candidates);
+        ordered.sort(Comparator.comparingDouble(location -> distanceSquared(location, viewer)));
+        return ordered;
+    }
+
+    /**
+     * Reverts the farthest fake blocks across all players until at most {@code maxTotal} are left,
+     * e.g. after the server-wide cap was lowered. Must be called on the main thread.
+     *
+     * @param maxTotal the server-wide cap, 0 for no cap
+     * @return the number of blocks reverted
+     */
+    public int evictFarthestBlocks(int maxTotal) {
+        int excess = blockTracker.getTrackedCount() - maxTotal;
+        if (maxTotal <= 0 || excess <= 0) {
+            return 0;
+        }
+
+        PriorityQueue<EvictionList> queue = getEvictionQueue(null);
+        Map<Player, List<Location>> evicted = new HashMap<>();
+        int count = 0;
+        while (count < excess && !queue.isEmpty()) {
+            TrackedBlock block = pollEvictable(queue);
+            evicted.computeIfAbsent(block.player(), k -> new ArrayList<>()).add(block.location());
+            count++;
+        }
+
+        for (Map.Entry<Player, List<Location>> entry : evicted.entrySet()) {
+            evictBlocks(entry.getKey(), entry.getValue());
+        }
+        plugin.debug("Evicted " + count + " fake blocks over the server-wide cap of " + maxTotal);
+        return count;
+    }
+
+    /**
+     * Reverts some of a player's fake blocks and forgets them everywhere they are kept, so neither a
+     * pending resend nor a chunk packet brings them back.
+     */
+    private void evictBlocks(@NotNull Player player, @NotNull List<Location> locations) {
+        // Blocks injected since the last send are on the client too, track them before removing any
+        trackInjected(player, player.getWorld());
+
+        Set<Location> resends = pendingResends.get(player.getUniqueId());
+        for (Location location : locations) {
+            // The client dropped blocks of a world it left along with that world
+            if (location.getWorld() == player.getWorld()) {
+                revertBlock(player, location);
+            }
+            blockTracker.removeBlock(player.getUniqueId(), location);
+            if (resends != null) {
+                resends.remove(location);
+            }
+        }
+
+        if (chunkInjection != null) {
+            chunkInjection.removeBlocks(player.getUniqueId(), locations);
+        }
+    }
+
+    /**
+     * Tracks the fake blocks the packet injector wrote into chunk packets for a player since the last call.
+     */
+    private void trackInjected(@NotNull Player player, @NotNull World world) {
+        if (chunkInjection != null) {
+            chunkInjection.drainInjected(player.getUniqueId(), blockKey -> blockTracker.addBlock(player,
+                new Location(world, Block.getBlockKeyX(blockKey), Block.getBlockKeyY(blockKey), Block.getBlockKeyZ(blockKey))));
+        }
+    }
+
+    /**
+     * Gets the squared distance between a block and a viewer, treating blocks in another world as infinitely far.
+     */
+    private static double distanceSquared(@NotNull Location location, @NotNull Location viewer) {
+        if (location.getWorld() != viewer.getWorld()) {
+            return Double.MAX_VALUE;
+        }
+        double dx = location.getX() + 0.5 - viewer.getX();
+        double dy = location.getY() + 0.5 - viewer.getY();
+        double dz = location.getZ() + 0.5 - viewer.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Places a fake block at the specified location if it's air.
+     *
+     * @param player       the player to send the block to
+     * @param location     the block location
+     * @param blockData    the fake block data
+     * @param cullEnclosed whether to skip air pockets enclosed by solid blocks
+     * @param resend       whether to send the block even if the player already has it
+     * @param blocks       the set to add this block location to
+     * @param unsentBlocks the list to add blocks in chunks the player hasn't received to, or null
+     * @return true if a block change was sent
+     */
+    private boolean placeBlock(@NotNull Player player, @NotNull Location location, @NotNull BlockData blockData,
+                            boolean cullEnclosed, boolean resend, @NotNull Set<Location> blocks,
+                            @Nullable List<Location> unsentBlocks) {
+        // Never look up blocks in chunks the player hasn't received, that could load them synchronously
+        if (!isChunkVisible(player, location.getWorld(), location.getX(), location.getZ())) {
+            if (unsentBlocks != null) {
+                unsentBlocks.add(location);
+            }
+            return false;
+        }
 
         // Only place blocks where there's currently air
         if (location.getBlock().getType() == Material.AIR) {
-            BlockData blockData = getBlockData();
-            player.sendBlockChange(location, blockData);
+            if (cullEnclosed && isEnclosed(location.getWorld(), location.getBlockX(), location.getBlockY(),
+                    location.getBlockZ(), false)) {
+                return false;
+            }
             blocks.add(location);
+
+            // The client keeps the fake until something invalidates it, so only send new blocks
+            if (!resend && blockTracker.hasBlock(player, location)) {
+                return false;
+            }
+
+            player.sendBlockChange(location, blockData);
             plugin.debug("Placed block at " + location.getBlockX() + "," + location.getBlockY() + "," + location.getBlockZ() +
                         " for player " + player.getName() + " (material: " + blockData.getMaterial() + ")");
-        } else {
-            plugin.debug("Skipped block at " + location.getBlockX() + "," + location.getBlockY() + "," + location.getBlockZ() +
-                        " - not air (is " + location.getBlock().getType() + ")");
+            return true;
+        }
+
+        plugin.debug("Skipped block at " + location.getBlockX() + "," + location.getBlockY() + "," + location.getBlockZ() +
+                    " - not air (is " + location.getBlock().getType() + ")");
+        return false;
+    }
+
+    /**
+     * Checks whether a point below the terrain surface is hidden inside solid blocks: either in an
+     * occluding block or in an air pocket closed off by occluding blocks on all six sides.
+     * Points above the surface are never enclosed, so this costs nothing for them.
+     *
+     * @param checkSelf whether the block at the point itself can hide it
+     */
+    private boolean isEnclosed(@NotNull World world, int x, int y, int z, boolean checkSelf) {
+        int surfaceY = heightmaps.getSurfaceY(world, x, z);
+        if (y >= surfaceY) {
+            return false;
+        }
+
+        if (checkSelf && world.getBlockAt(x, y, z).getType().isOccluding()) {
+            return true;
+        }
+
+        return isOccluding(world, x + 1, y, z) && isOccluding(world, x - 1, y, z)
+            && isOccluding(world, x, y + 1, z) && isOccluding(world, x, y - 1, z)
+            && isOccluding(world, x, y, z + 1) && isOccluding(world, x, y, z - 1);
+    }
+
+    /**
+     * Checks whether a block occludes vision, treating unloaded chunks as open so they are never loaded.
+     */
+    private boolean isOccluding(@NotNull World world, int x, int y, int z) {
+        return world.isChunkLoaded(x >> 4, z >> 4) && world.getBlockAt(x, y, z).getType().isOccluding();
+    }
+
+    /**
+     * Checks whether a column is in a chunk that is loaded and has been sent to the player.
+     * Columns in chunks the player is still waiting for are remembered so the forcefield
+     * can be rendered as soon as the chunk arrives.
+     */
+    private boolean isChunkVisible(@NotNull Player player, @NotNull World world, double x, double z) {
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+
+        if (world.isChunkLoaded(chunkX, chunkZ) && player.isChunkSent(chunkKey)) {
+            return true;
+        }
+
+        awaitingChunks.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>()).add(chunkKey);
+        return false;
+    }
+
+    /**
+     * Checks whether the chunk containing a location is loaded, without loading it.
+     */
+    private boolean isChunkLoaded(@NotNull Location location) {
+        return location.getWorld() != null
+            && location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    /**
+     * Sends the real block back to a player. Blocks in unloaded chunks are skipped,
+     * the client discarded them along with the chunk.
+     */
+    private void revertBlock(@NotNull Player player, @NotNull Location location) {
+        if (isChunkLoaded(location)) {
+            player.sendBlockChange(location, location.getBlock().getBlockData());
+        }
+    }
+
+    /**
+     * Checks whether part of a player's forcefield was skipped because a chunk had not been sent yet.
+     *
+     * @param player   the player
+     * @param chunkKey the chunk key
+     * @return true if the player should be re-rendered now that the chunk arrived
+     */
+    public boolean isAwaitingChunk(@NotNull Player player, long chunkKey) {
+        Set<Long> chunks = awaitingChunks.get(player.getUniqueId());
+        return chunks != null && chunks.contains(chunkKey);
+    }
+
+    /**
+     * Handles a chunk being unloaded on a player's client. The client dropped any fake blocks
+     * inside it, so they are forgotten without sending anything.
+     *
+     * @param player the player
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public void forgetChunk(@NotNull Player player, int chunkX, int chunkZ) {
+        for (Location location : blockTracker.getBlocksInChunk(player, chunkX, chunkZ)) {
+            blockTracker.removeBlock(player.getUniqueId(), location);
+        }
+    }
+
+    /**
+     * Handles a player leaving a world. Their client dropped every chunk of the old world along with its
+     * fake blocks, so those are forgotten without reverting them, which would look up blocks in the old
+     * world and send them into the new one.
+     *
+     * @param player the player that changed worlds
+     */
+    public void forgetWorld(@NotNull Player player) {
+        blockTracker.clearPlayer(player);
+        evictionLists.remove(player.getUniqueId());
+        viewerIndex.clearPlayer(player.getUniqueId());
+        awaitingChunks.remove(player.getUniqueId());
+        pendingResends.remove(player.getUniqueId());
+        if (chunkInjection != null) {
+            chunkInjection.clearPlayer(player.getUniqueId());
         }
     }
 
@@ -336,9 +1009,16 @@ public class ForcefieldRenderer {
         Set<Location> blocks = blockTracker.getBlocks(player);
         for (Location location : blocks) {
             // Send the real block data back to the player
-            player.sendBlockChange(location, location.getBlock().getBlockData());
+            revertBlock(player, location);
         }
         blockTracker.clearPlayer(player);
+        evictionLists.remove(player.getUniqueId());
+        viewerIndex.clearPlayer(player.getUniqueId());
+        awaitingChunks.remove(player.getUniqueId());
+        sentBlockData.remove(player.getUniqueId());
+        if (chunkInjection != null) {
+            chunkInjection.clearPlayer(player.getUniqueId());
+        }
     }
 
     /**
@@ -346,18 +1026,133 @@ public class ForcefieldRenderer {
      *
      * @param player    the player
      * @param newBlocks the new set of blocks to show
+     * @return the number of blocks reverted
      */
-    public void updateBlocks(@NotNull Player player, @NotNull Set<Location> newBlocks) {
+    public int updateBlocks(@NotNull Player player, @NotNull Set<Location> newBlocks) {
         Set<Location> oldBlocks = blockTracker.getBlocks(player);
 
         // Remove blocks that are no longer needed
+        int reverted = 0;
         for (Location location : oldBlocks) {
             if (!newBlocks.contains(location)) {
-                player.sendBlockChange(location, location.getBlock().getBlockData());
+                revertBlock(player, location);
+                reverted++;
             }
         }
 
         // Update the tracker
         blockTracker.setBlocks(player, newBlocks);
+        return reverted;
+    }
+
+    /**
+     * Handles a server-side change at a block location that may have overwritten fake blocks.
+     * Every player showing a fake block there gets it re-sent on the next tick.
+     *
+     * @param location the block location that changed
+     */
+    public void invalidateBlock(@NotNull Location location) {
+        for (UUID playerId : blockTracker.getViewers(location)) {
+            blockTracker.removeBlock(playerId, location);
+            queueResend(playerId, location);
+        }
+    }
+
+    /**
+     * Handles a chunk being (re)sent to a player, which replaces any fake blocks inside it.
+     *
+     * @param player the player that received the chunk
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     */
+    public void invalidateChunk(@NotNull Player player, int chunkX, int chunkZ) {
+        for (Location location : blockTracker.getBlocksInChunk(player, chunkX, chunkZ)) {
+            blockTracker.removeBlock(player.getUniqueId(), location);
+            queueResend(player.getUniqueId(), location);
+        }
+    }
+
+    /**
+     * Queues a fake block to be re-sent to a player on the next tick.
+     */
+    private void queueResend(@NotNull UUID playerId, @NotNull Location location) {
+        pendingResends.computeIfAbsent(playerId, k -> new HashSet<>()).add(location);
+        if (!resendScheduled) {
+            resendScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::flushResends);
+        }
+    }
+
+    /**
+     * Re-sends all queued fake blocks. Runs a tick after the invalidating change,
+     * once the server has sent its own block update to the client.
+     */
+    private void flushResends() {
+        resendScheduled = false;
+        if (pendingResends.isEmpty()) {
+            return;
+        }
+
+        BlockData blockData = settings.getBlockData();
+        int resent = 0;
+        for (Map.Entry<UUID, Set<Location>> entry : pendingResends.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player == null) {
+                continue;
+            }
+
+            for (Location location : entry.getValue()) {
+                // The location may have been filled in, in which case the next cycle drops it
+                if (location.getWorld() == player.getWorld() && isChunkLoaded(location)
+                    && location.getBlock().getType() == Material.AIR) {
+                    player.sendBlockChange(location, blockData);
+                    blockTracker.addBlock(player, location);
+                    resent++;
+                }
+            }
+        }
+        pendingResends.clear();
+
+        plugin.debug("Re-sent " + resent + " invalidated fake blocks");
+    }
+
+    /**
+     * A fake block shown to a player, with its distance to them.
+     */
+    private record TrackedBlock(@NotNull Player player, @NotNull Location location, double distanceSquared) {
+    }
+
+    /**
+     * A player's fake blocks ranked farthest first, and a cursor past the ones already evicted.
+     */
+    private final class EvictionList {
+
+        private final Player player;
+        private final List<TrackedBlock> blocks;
+        private final int tick;
+        private int cursor;
+
+        private EvictionList(@NotNull Player player, @NotNull List<TrackedBlock> blocks, int tick) {
+            this.player = player;
+            this.blocks = blocks;
+            this.tick = tick;
+        }
+
+        /**
+         * Moves the cursor past blocks reverted since the list was ranked.
+         *
+         * @return true if a block is left
+         */
+        private boolean skipReverted() {
+            while (cursor < blocks.size() && !blockTracker.hasBlock(player, blocks.get(cursor).location())) {
+                cursor++;
+            }
+            return cursor < blocks.size();
+        }
+
+        @NotNull
+        private TrackedBlock peek() {
+            return blocks.get(cursor);
+        }
     }
 }
@@ -0,0 +1,349 @@
+package loganintech.regionforcefield.forcefield;
+
+import org.bukkit.Color;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.logging.Logger;
+
+/**
+ * Immutable snapshot of the rendering settings.
+ * A cycle reads all of its settings from one snapshot, so worker threads never touch the live config.
+ */
+public final class ForcefieldSettings {
+
+    private final boolean renderWalls;
+    private final boolean renderParticles;
+    private final double particleSpacing;
+    private final ParticleMode particleMode;
+    private final double coalesceCellSize;
+    private final int coalesceMaxCount;
+    private final int sparkleParticles;
+    private final Particle.DustOptions dustOptions;
+    private final boolean renderBlocks;
+    private final double blockSpacing;
+    private final BlockData blockData;
+    private final int maxRenderDistance;
+    private final int renderExitMargin;
+    private final int fadeInDistance;
+    private final RenderBackend renderBackend;
+    private final BlockData displayBlockData;
+    private final double displayTileSize;
+    private final float displayThickness;
+    private final int displayMaxTiles;
+    private final boolean occlusionCulling;
+    private final int heightBand;
+    private final int maxBlocksPerPlayer;
+    private final int maxBlocksTotal;
+    private final double spacingScale;
+    private final int blockStride;
+    private final double distanceScale;
+
+    private ForcefieldSettings(@NotNull ConfigurationSection config, @NotNull Logger logger) {
+        this.renderWalls = config.getBoolean("render-walls", true);
+        this.renderParticles = config.getBoolean("render-particles", true);
+        this.particleSpacing = Math.max(0.1, config.getDouble("particle-spacing", 0.5));
+        this.coalesceCellSize = Math.max(particleSpacing, config.getDouble("coalesce-cell-size", 4.0));
+        this.coalesceMaxCount = Math.max(1, config.getInt("coalesce-max-count", 32));
+        this.sparkleParticles = Math.max(1, config.getInt("sparkle-particles-per-wall", 24));
+
+        String modeName = config.getString("particle-mode", "points");
+        ParticleMode mode = ParticleMode.fromName(modeName);
+        if (mode == null) {
+            logger.warning("Invalid particle mode '" + modeName + "', using POINTS");
+            mode = ParticleMode.POINTS;
+        }
+        this.particleMode = mode;
+        this.renderBlocks = config.getBoolean("render-blocks", true);
+        this.blockSpacing = config.getDouble("block-spacing", 1.0);
+        this.maxRenderDistance = config.getInt("max-render-distance", 100);
+        this.renderExitMargin = Math.max(0, config.getInt("render-exit-margin", 8));
+        this.fadeInDistance = Math.max(0, config.getInt("fade-in-distance", 0));
+
+        int red = config.getInt("particle-color.red", 147);
+        int green = config.getInt("particle-color.green", 112);
+        int blue = config.getInt("particle-color.blue", 219);
+        float size = (float) config.getDouble("particle-size", 1.0);
+        this.dustOptions = new Particle.DustOptions(Color.fromRGB(red, green, blue), size);
+
+        String materialName = config.getString("block-material", "PURPLE_STAINED_GLASS_PANE");
+        Material material;
+        try {
+            material = Material.valueOf(materialName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid block material '" + materialName + "', using PURPLE_STAINED_GLASS_PANE");
+            material = Material.PURPLE_STAINED_GLASS_PANE;
+        }
+        this.blockData = material.createBlockData();
+
+        String backendName = config.getString("renderer", "blocks");
+        RenderBackend backend = RenderBackend.fromName(backendName);
+        if (backend == null) {
+            logger.warning("Invalid renderer '" + backendName + "', using BLOCKS");
+            backend = RenderBackend.BLOCKS;
+        }
+        this.renderBackend = backend;
+        this.displayTileSize = Math.max(1.0, config.getDouble("display-tile-size", 16.0));
+        this.displayThickness = (float) Math.max(0.01, config.getDouble("display-thickness", 0.05));
+        this.displayMaxTiles = Math.max(4, config.getInt("display-max-tiles-per-region", 256));
+
+        String displayMaterialName = config.getString("display-material", "PURPLE_STAINED_GLASS");
+        Material displayMaterial = Material.matchMaterial(displayMaterialName);
+        if (displayMaterial == null || !displayMaterial.isBlock()) {
+            logger.warning("Invalid display material '" + displayMaterialName + "', using PURPLE_STAINED_GLASS");
+            displayMaterial = Material.PURPLE_STAINED_GLASS;
+        }
+        this.displayBlockData = displayMaterial.createBlockData();
+        this.occlusionCulling = config.getBoolean("occlusion-culling", true);
+        this.heightBand = Math.max(0, config.getInt("height-band", 0));
+        this.maxBlocksPerPlayer = Math.max(0, config.getInt("max-fake-blocks-per-player", 8192));
+        this.maxBlocksTotal = Math.max(0, config.getInt("max-fake-blocks-total", 200000));
+        this.spacingScale = 1.0;
+        this.blockStride = 1;
+        this.distanceScale = 1.0;
+    }
+
+    private ForcefieldSettings(@NotNull ForcefieldSettings base, boolean renderWalls, double particleSpacing,
+                               double blockSpacing, int maxRenderDistance, double spacingScale, int blockStride,
+                               double distanceScale) {
+        this.renderWalls = renderWalls;
+        this.renderParticles = base.renderParticles;
+        this.particleSpacing = particleSpacing;
+        this.particleMode = base.particleMode;
+        this.coalesceCellSize = Math.max(particleSpacing, base.coalesceCellSize);
+        this.coalesceMaxCount = base.coalesceMaxCount;
+        this.sparkleParticles = base.sparkleParticles;
+        this.dustOptions = base.dustOptions;
+        this.renderBlocks = base.renderBlocks;
+        this.blockSpacing = blockSpacing;
+        this.blockData = base.blockData;
+        this.maxRenderDistance = maxRenderDistance;
+        this.renderExitMargin = base.renderExitMargin;
+        this.fadeInDistance = base.fadeInDistance;
+        this.renderBackend = base.renderBackend;
+        this.displayBlockData = base.displayBlockData;
+        this.displayTileSize = base.displayTileSize;
+        this.displayThickness = base.displayThickness;
+        this.displayMaxTiles = base.displayMaxTiles;
+        this.occlusionCulling = base.occlusionCulling;
+        this.heightBand = base.heightBand;
+        this.maxBlocksPerPlayer = base.maxBlocksPerPlayer;
+        this.maxBlocksTotal = base.maxBlocksTotal;
+        this.spacingScale = spacingScale;
+        this.blockStride = blockStride;
+        this.distanceScale = distanceScale;
+    }
+
+    /**
+     * Reads a settings snapshot from a configuration.
+     *
+     * @param config the configuration to read
+     * @param logger the logger for invalid values
+     * @return the settings snapshot
+     */
+    @NotNull
+    public static ForcefieldSettings fromConfig(@NotNull ConfigurationSection config, @NotNull Logger logger) {
+        return new ForcefieldSettings(config, logger);
+    }
+
+    /**
+     * Derives the settings of a single region from this snapshot. Null values keep the global setting.
+     *
+     * @param renderWalls       whether to render walls, or null
+     * @param particleSpacing   the particle spacing, or null
+     * @param blockSpacing      the block spacing, or null
+     * @param maxRenderDistance the max render distance, or null
+     * @return the derived settings
+     */
+    @NotNull
+    public ForcefieldSettings withOverrides(@Nullable Boolean renderWalls, @Nullable Double particleSpacing,
+                                            @Nullable Double blockSpacing, @Nullable Integer maxRenderDistance) {
+        // Overrides are scaled like the global values, so throttling also applies to tuned regions
+        return new ForcefieldSettings(this,
+            renderWalls != null ? renderWalls : this.renderWalls,
+            particleSpacing != null ? Math.max(0.1, particleSpacing) * spacingScale : this.particleSpacing,
+            blockSpacing != null ? blockSpacing : this.blockSpacing,
+            maxRenderDistance != null ? (int) (Math.max(0, maxRenderDistance) * distanceScale) : this.maxRenderDistance,
+            spacingScale, blockStride, distanceScale);
+    }
+
+    /**
+     * Derives cheaper settings from this snapshot, used to throttle rendering under load.
+     * <p>
+     * Only particles are spread out. Blocks keep their grid and skip whole grid steps instead, so a throttle
+     * change reverts the dropped blocks without moving, and re-sending, the ones that stay.
+     *
+     * @param spacingScale  factor to multiply particle spacing by
+     * @param blockStride   power of two to multiply the block interval by
+     * @param distanceScale factor to multiply the max render distance by
+     * @return the scaled settings
+     */
+    @NotNull
+    public ForcefieldSettings scaled(double spacingScale, int blockStride, double distanceScale) {
+        return new ForcefieldSettings(this, renderWalls, particleSpacing * spacingScale, blockSpacing,
+            (int) (maxRenderDistance * distanceScale), this.spacingScale * spacingScale,
+            this.blockStride * blockStride, this.distanceScale * distanceScale);
+    }
+
+    public boolean isRenderWalls() {
+        return renderWalls;
+    }
+
+    public boolean isRenderParticles() {
+        return renderParticles;
+    }
+
+    public double getParticleSpacing() {
+        return particleSpacing;
+    }
+
+    @NotNull
+    public ParticleMode getParticleMode() {
+        return particleMode;
+    }
+
+    public double getCoalesceCellSize() {
+        return coalesceCellSize;
+    }
+
+    public int getCoalesceMaxCount() {
+        return coalesceMaxCount;
+    }
+
+    public int getSparkleParticles() {
+        return sparkleParticles;
+    }
+
+    @NotNull
+    public Particle.DustOptions getDustOptions() {
+        return dustOptions;
+    }
+
+    public boolean isRenderBlocks() {
+        return renderBlocks;
+    }
+
+    public double getBlockSpacing() {
+        return blockSpacing;
+    }
+
+    /**
+     * Gets the fake block data. Callers must not modify it.
+     *
+     * @return block data for the configured material
+     */
+    @NotNull
+    public BlockData getBlockData() {
+        return blockData;
+    }
+
+    public int getMaxRenderDistance() {
+        return maxRenderDistance;
+    }
+
+    /**
+     * Gets how far beyond the render distance a region that is already rendered stays rendered,
+     * so players walking along the edge don't make it appear and disappear every cycle.
+     *
+     * @return the exit margin in blocks, 0 to remove regions as soon as they are out of range
+     */
+    public int getRenderExitMargin() {
+        return renderExitMargin;
+    }
+
+    /**
+     * Gets the width of the band inside the render distance in which a region's fake blocks thin out
+     * towards the edge, so entering the render distance only sends a sparse surface at first.
+     *
+     * @return the fade-in band in blocks, 0 to render regions at full density right away
+     */
+    public int getFadeInDistance() {
+        return fadeInDistance;
+    }
+
+    @NotNull
+    public RenderBackend getRenderBackend() {
+        return renderBackend;
+    }
+
+    /**
+     * Gets the block shown by display entities. Callers must not modify it.
+     *
+     * @return block data for the configured display material
+     */
+    @NotNull
+    public BlockData getDisplayBlockData() {
+        return displayBlockData;
+    }
+
+    public double getDisplayTileSize() {
+        return displayTileSize;
+    }
+
+    public float getDisplayThickness() {
+        return displayThickness;
+    }
+
+    /**
+     * Gets how many display entities a single region may use. Larger regions get larger tiles.
+     *
+     * @return the tile cap per region
+     */
+    public int getDisplayMaxTiles() {
+        return displayMaxTiles;
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    /**
+     * Gets how far above and below the viewer walls and edges are rendered.
+     *
+     * @return the half height of the band in blocks, or 0 to render the full height
+     */
+    public int getHeightBand() {
+        return heightBand;
+    }
+
+    /**
+     * Gets how many fake blocks a single player may have at once. The farthest are dropped beyond that.
+     *
+     * @return the per-player cap, 0 for no cap
+     */
+    public int getMaxBlocksPerPlayer() {
+        return maxBlocksPerPlayer;
+    }
+
+    /**
+     * Gets how many fake blocks all players together may have at once.
+     *
+     * @return the server-wide cap, 0 for no cap
+     */
+    public int getMaxBlocksTotal() {
+        return maxBlocksTotal;
+    }
+
+    /**
+     * Gets the step of the grid blocks are placed on. This is the particle spacing before throttling,
+     * so throttling never moves a block.
+     *
+     * @return the block grid step in blocks
+     */
+    public double getBlockGridSpacing() {
+        return particleSpacing / spacingScale;
+    }
+
+    /**
+     * Gets how many block grid steps lie between two block placements.
+     *
+     * @return the block interval in grid steps, at least 1
+     */
+    public int getBlockInterval() {
+        return (int) Math.max(1, blockSpacing / getBlockGridSpacing()) * blockStride;
+    }
+}
@@ -0,0 +1,171 @@
+package loganintech.regionforcefield.forcefield;
+
+import org.bukkit.Chunk;
+import org.bukkit.HeightMap;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Caches the surface height of chunks, used to cull forcefield points buried in terrain.
+ * <p>
+ * Heightmaps can only be read from the world on the main thread, so worker threads that find a chunk
+ * missing request it and don't cull it this cycle. The main thread builds requested chunks at the start
+ * of the next cycle, a few at a time, and drops a chunk when a block change could move its surface.
+ */
+public class HeightmapCache {
+
+    /** Returned for columns whose surface is not known, nothing is below it. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int MAX_BUILDS_PER_CYCLE = 64;
+
+    private final Logger logger;
+    private final Map<UUID, Map<Long, int[]>> worlds = new ConcurrentHashMap<>();
+    private final Set<ChunkRef> requested = ConcurrentHashMap.newKeySet();
+    private volatile boolean supported = true;
+
+    /**
+     * Creates an empty heightmap cache.
+     *
+     * @param logger the logger for unsupported servers
+     */
+    public HeightmapCache(@NotNull Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Gets the y of the highest solid block in a column, ignoring leaves. Safe to call from any thread.
+     * Unknown columns are requested for the next cycle.
+     *
+     * @param world the world
+     * @param x     the block x
+     * @param z     the block z
+     * @return the surface y, or {@link #UNKNOWN} if the chunk isn't cached yet
+     */
+    public int getSurfaceY(@NotNull World world, int x, int z) {
+        if (!supported) {
+            return UNKNOWN;
+        }
+
+        Map<Long, int[]> chunks = worlds.get(world.getUID());
+        long chunkKey = Chunk.getChunkKey(x >> 4, z >> 4);
+        int[] heights = chunks != null ? chunks.get(chunkKey) : null;
+        if (heights == null) {
+            requested.add(new ChunkRef(world, chunkKey));
+            return UNKNOWN;
+        }
+        return heights[(x & 15) << 4 | (z & 15)];
+    }
+
+    /**
+     * Gets the surface y of a column, building its chunk right away if needed.
+     * Must be called on the main thread.
+     *
+     * @param world the world
+     * @param x     the block x
+     * @param z     the block z
+     * @return the surface y, or {@link #UNKNOWN} if the chunk isn't loaded
+     */
+    public int getSurfaceYNow(@NotNull World world, int x, int z) {
+        int surfaceY = getSurfaceY(world, x, z);
+        if (surfaceY == UNKNOWN && build(world, x >> 4, z >> 4)) {
+            surfaceY = getSurfaceY(world, x, z);
+        }
+        return surfaceY;
+    }
+
+    /**
+     * Builds the heightmaps requested since the last call. Must be called on the main thread.
+     */
+    public void buildRequested() {
+        int built = 0;
+        Iterator<ChunkRef> iterator = requested.iterator();
+        while (iterator.hasNext() && built < MAX_BUILDS_PER_CYCLE) {
+            ChunkRef ref = iterator.next();
+            iterator.remove();
+
+            int chunkX = (int) ref.chunkKey();
+            int chunkZ = (int) (ref.chunkKey() >> 32);
+            if (build(ref.world(), chunkX, chunkZ)) {
+                built++;
+            }
+        }
+    }
+
+    /**
+     * Reads a chunk's heightmap from the world. Never loads the chunk.
+     *
+     * @return true if the chunk was built
+     */
+    private boolean build(@NotNull World world, int chunkX, int chunkZ) {
+        if (!supported || !world.isChunkLoaded(chunkX, chunkZ)) {
+            return false;
+        }
+
+        try {
+            int[] heights = new int[256];
+            int baseX = chunkX << 4;
+            int baseZ = chunkZ << 4;
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    heights[x << 4 | z] = world.getHighestBlockYAt(baseX + x, baseZ + z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+                }
+            }
+            worlds.computeIfAbsent(world.getUID(), k -> new ConcurrentHashMap<>())
+                .put(Chunk.getChunkKey(chunkX, chunkZ), heights);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            logger.warning("Server does not provide heightmaps, disabling occlusion culling");
+            supported = false;
+            requested.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Drops a chunk's heightmap if a change to this block could move its surface.
+     * Changes below the surface never do.
+     *
+     * @param block the changed block
+     */
+    public void invalidate(@NotNull Block block) {
+        Map<Long, int[]> chunks = worlds.get(block.getWorld().getUID());
+        if (chunks == null) {
+            return;
+        }
+
+        long chunkKey = Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4);
+        int[] heights = chunks.get(chunkKey);
+        if (heights != null && block.getY() >= heights[(block.getX() & 15) << 4 | (block.getZ() & 15)]) {
+            chunks.remove(chunkKey);
+        }
+    }
+
+    /**
+     * Drops the heightmap of an unloaded chunk.
+     *
+     * @param world  the world
+     * @param chunkX the chunk x
+     * @param chunkZ the chunk z
+     */
+    public void forgetChunk(@NotNull World world, int chunkX, int chunkZ) {
+        Map<Long, int[]> chunks = worlds.get(world.getUID());
+        if (chunks != null) {
+            chunks.remove(Chunk.getChunkKey(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * A chunk waiting to have its heightmap built.
+     */
+    private record ChunkRef(@NotNull World world, long chunkKey) {
+    }
+}
@@ -0,0 +1,60 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.destroystokyo.paper.ClientOption;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How many forcefield particles a player is sent, from their own preference and their client's particle setting.
+ */
+public enum ParticleLevel {
+
+    /** Every particle. */
+    FULL,
+
+    /** About half the particles, like the client's decreased setting. */
+    REDUCED,
+
+    /** No particles, fake blocks and display entities still show the forcefield. */
+    OFF;
+
+    /**
+     * Parses a level from its command name.
+     *
+     * @param name the name
+     * @return the level, or null if the name is unknown
+     */
+    public static ParticleLevel fromName(@NotNull String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Maps a client's particle setting to the level worth sending to it.
+     * Minimal clients hide nearly all particles, so they get none.
+     *
+     * @param visibility the client setting
+     * @return the matching level
+     */
+    @NotNull
+    public static ParticleLevel fromClient(@NotNull ClientOption.ParticleVisibility visibility) {
+        return switch (visibility) {
+            case ALL -> FULL;
+            case DECREASED -> REDUCED;
+            case MINIMAL -> OFF;
+        };
+    }
+
+    /**
+     * Combines two levels, keeping the one that sends fewer particles.
+     *
+     * @param other the other level
+     * @return the lower level
+     */
+    @NotNull
+    public ParticleLevel min(@NotNull ParticleLevel other) {
+        return ordinal() >= other.ordinal() ? this : other;
+    }
+}
@@ -0,0 +1,32 @@
+package loganintech.regionforcefield.forcefield;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How forcefield surfaces are covered with particle packets.
+ */
+public enum ParticleMode {
+
+    /** One packet per particle point. Packets scale with wall area. */
+    POINTS,
+
+    /** One packet per wall cell, carrying several particles spread over the cell. */
+    COALESCED,
+
+    /** A fixed number of randomly placed particles per wall or edge each cycle. */
+    SPARKLE;
+
+    /**
+     * Parses a mode from its config name.
+     *
+     * @param name the config value
+     * @return the mode, or null if the name is unknown
+     */
+    public static ParticleMode fromName(@NotNull String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
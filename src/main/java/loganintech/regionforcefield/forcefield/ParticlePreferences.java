@@ -0,0 +1,68 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.destroystokyo.paper.ClientOption;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads and stores each player's forcefield particle preference. The preference is kept in the
+ * player's persistent data container, so it survives relogs and restarts without a separate file.
+ */
+public class ParticlePreferences {
+
+    private final NamespacedKey key;
+
+    /**
+     * Creates the preference store.
+     *
+     * @param plugin the plugin instance, which namespaces the stored key
+     */
+    public ParticlePreferences(@NotNull RegionForcefieldPlugin plugin) {
+        this.key = new NamespacedKey(plugin, "particles");
+    }
+
+    /**
+     * Gets the level a player chose with {@code /forcefield particles}.
+     *
+     * @param player the player
+     * @return the chosen level, {@link ParticleLevel#FULL} if they never chose one
+     */
+    @NotNull
+    public ParticleLevel getPreference(@NotNull Player player) {
+        String stored = player.getPersistentDataContainer().get(key, PersistentDataType.STRING);
+        ParticleLevel level = stored != null ? ParticleLevel.fromName(stored) : null;
+        return level != null ? level : ParticleLevel.FULL;
+    }
+
+    /**
+     * Stores a player's preference. Choosing full particles removes the stored value.
+     *
+     * @param player the player
+     * @param level  the chosen level
+     */
+    public void setPreference(@NotNull Player player, @NotNull ParticleLevel level) {
+        PersistentDataContainer container = player.getPersistentDataContainer();
+        if (level == ParticleLevel.FULL) {
+            container.remove(key);
+        } else {
+            container.set(key, PersistentDataType.STRING, level.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Gets the level of particles worth sending to a player: their preference, lowered further
+     * if their client is set to show fewer particles. Must be called on the main thread.
+     *
+     * @param player the player
+     * @return the effective level
+     */
+    @NotNull
+    public ParticleLevel getLevel(@NotNull Player player) {
+        ParticleLevel client = ParticleLevel.fromClient(player.getClientOption(ClientOption.PARTICLE_VISIBILITY));
+        return getPreference(player).min(client);
+    }
+}
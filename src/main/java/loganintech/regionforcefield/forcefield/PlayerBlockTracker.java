@@ -4,6 +4,7 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -12,10 +13,19 @@ import java.util.UUID;
 
 /**
  * Tracks fake blocks sent to players so they can be properly cleaned up.
+ * A location is only tracked while the client is known to be showing the fake block,
+ * so anything that makes the client lose it must remove it from the tracker.
  */
 public class PlayerBlockTracker {
 
+    // Rough retained sizes of a tracked block: its Location and entry in the player's set,
+    // and per distinct location the viewer set and its entry in the viewer index
+    private static final int PLAYER_ENTRY_BYTES = 96;
+    private static final int LOCATION_ENTRY_BYTES = 176;
+
     private final Map<UUID, Set<Location>> playerBlocks = new HashMap<>();
+    private final Map<Location, Set<UUID>> blockViewers = new HashMap<>();
+    private int trackedCount;
 
     /**
      * Records that a block was sent to a player.
@@ -24,7 +34,23 @@ public class PlayerBlockTracker {
      * @param location the block location
      */
     public void addBlock(@NotNull Player player, @NotNull Location location) {
-        playerBlocks.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>()).add(location.clone());
+        Location key = location.clone();
+        if (playerBlocks.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>()).add(key)) {
+            trackedCount++;
+            blockViewers.computeIfAbsent(key, k -> new HashSet<>()).add(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Checks whether a player's client is currently showing a fake block at a location.
+     *
+     * @param player   the player
+     * @param location the block location
+     * @return true if the block was sent and has not been invalidated since
+     */
+    public boolean hasBlock(@NotNull Player player, @NotNull Location location) {
+        Set<Location> blocks = playerBlocks.get(player.getUniqueId());
+        return blocks != null && blocks.contains(location);
     }
 
     /**
@@ -38,13 +64,121 @@ public class PlayerBlockTracker {
         return playerBlocks.getOrDefault(player.getUniqueId(), new HashSet<>());
     }
 
+    /**
+     * Gets the tracked blocks of a player that lie within a chunk.
+     *
+     * @param player the player
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return set of block locations in the chunk
+     */
+    @NotNull
+    public Set<Location> getBlocksInChunk(@NotNull Player player, int chunkX, int chunkZ) {
+        Set<Location> blocks = playerBlocks.get(player.getUniqueId());
+        if (blocks == null) {
+            return Collections.emptySet();
+        }
+
+        Set<Location> inChunk = new HashSet<>();
+        for (Location location : blocks) {
+            if ((location.getBlockX() >> 4) == chunkX && (location.getBlockZ() >> 4) == chunkZ
+                && location.getWorld() == player.getWorld()) {
+                inChunk.add(location);
+            }
+        }
+        return inChunk;
+    }
+
+    /**
+     * Gets the players whose clients are showing a fake block at a location.
+     *
+     * @param location the block location
+     * @return set of player UUIDs
+     */
+    @NotNull
+    public Set<UUID> getViewers(@NotNull Location location) {
+        Set<UUID> viewers = blockViewers.get(location);
+        return viewers != null ? new HashSet<>(viewers) : Collections.emptySet();
+    }
+
+    /**
+     * Gets the number of fake blocks a player is showing.
+     *
+     * @param playerId the player UUID
+     * @return the number of tracked blocks
+     */
+    public int getBlockCount(@NotNull UUID playerId) {
+        Set<Location> blocks = playerBlocks.get(playerId);
+        return blocks != null ? blocks.size() : 0;
+    }
+
+    /**
+     * Gets the number of fake blocks tracked across all players.
+     *
+     * @return the total number of tracked blocks
+     */
+    public int getTrackedCount() {
+        return trackedCount;
+    }
+
+    /**
+     * Gets the number of distinct locations with a fake block for at least one player.
+     *
+     * @return the number of locations
+     */
+    public int getLocationCount() {
+        return blockViewers.size();
+    }
+
+    /**
+     * Estimates the heap retained by the tracker.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedBytes() {
+        return (long) trackedCount * PLAYER_ENTRY_BYTES + (long) blockViewers.size() * LOCATION_ENTRY_BYTES;
+    }
+
+    /**
+     * Checks whether any fake blocks are tracked at all.
+     *
+     * @return true if no player has any fake blocks
+     */
+    public boolean isEmpty() {
+        return blockViewers.isEmpty();
+    }
+
+    /**
+     * Stops tracking a single block for a player, e.g. because the client lost it.
+     *
+     * @param playerId the player UUID
+     * @param location the block location
+     */
+    public void removeBlock(@NotNull UUID playerId, @NotNull Location location) {
+        Set<Location> blocks = playerBlocks.get(playerId);
+        if (blocks == null || !blocks.remove(location)) {
+            return;
+        }
+        trackedCount--;
+        if (blocks.isEmpty()) {
+            playerBlocks.remove(playerId);
+        }
+        removeViewer(location, playerId);
+    }
+
     /**
      * Clears all tracked blocks for a player.
      *
      * @param player the player
      */
     public void clearPlayer(@NotNull Player player) {
-        playerBlocks.remove(player.getUniqueId());
+        Set<Location> blocks = playerBlocks.remove(player.getUniqueId());
+        if (blocks != null) {
+            trackedCount -= blocks.size();
+            for (Location location : blocks) {
+                removeViewer(location, player.getUniqueId());
+            }
+        }
     }
 
     /**
@@ -54,10 +188,25 @@ public class PlayerBlockTracker {
      * @param newBlocks the new set of blocks
      */
     public void setBlocks(@NotNull Player player, @NotNull Set<Location> newBlocks) {
+        UUID playerId = player.getUniqueId();
+        Set<Location> oldBlocks = playerBlocks.get(playerId);
+        if (oldBlocks != null) {
+            trackedCount -= oldBlocks.size();
+            for (Location location : oldBlocks) {
+                if (!newBlocks.contains(location)) {
+                    removeViewer(location, playerId);
+                }
+            }
+        }
+
         if (newBlocks.isEmpty()) {
-            playerBlocks.remove(player.getUniqueId());
+            playerBlocks.remove(playerId);
         } else {
-            playerBlocks.put(player.getUniqueId(), new HashSet<>(newBlocks));
+            playerBlocks.put(playerId, new HashSet<>(newBlocks));
+            trackedCount += newBlocks.size();
+            for (Location location : newBlocks) {
+                blockViewers.computeIfAbsent(location, k -> new HashSet<>()).add(playerId);
+            }
         }
     }
 
@@ -66,5 +215,17 @@ public class PlayerBlockTracker {
      */
     public void clearAll() {
         playerBlocks.clear();
+        blockViewers.clear();
+        trackedCount = 0;
+    }
+
+    private void removeViewer(@NotNull Location location, @NotNull UUID playerId) {
+        Set<UUID> viewers = blockViewers.get(location);
+        if (viewers != null) {
+            viewers.remove(playerId);
+            if (viewers.isEmpty()) {
+                blockViewers.remove(location);
+            }
+        }
     }
 }
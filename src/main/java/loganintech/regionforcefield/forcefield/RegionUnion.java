@@ -0,0 +1,66 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds which of a player's blocked regions touch or overlap, so shared walls and walls buried inside
+ * the union of the regions can be left out of the player's render plan.
+ * <p>
+ * Most regions touch nothing, and only the walls of a region that come near a neighbour pay for the
+ * per-point checks in {@link RenderPlan}. Only reads the regions, so it can run off the main thread.
+ */
+public final class RegionUnion {
+
+    private RegionUnion() {
+    }
+
+    /**
+     * Finds the neighbours of each region: the other regions whose bounding box overlaps its own,
+     * or lies right next to it horizontally.
+     *
+     * @param regions the regions rendered for one player
+     * @return the neighbours of every region that has any
+     */
+    @NotNull
+    public static Map<ProtectedRegion, List<ProtectedRegion>> findNeighbours(@NotNull List<ProtectedRegion> regions) {
+        if (regions.size() < 2) {
+            return Collections.emptyMap();
+        }
+
+        // Sweep along x, so each region is only compared to the regions overlapping its x range
+        List<ProtectedRegion> sorted = new ArrayList<>(regions);
+        sorted.sort(Comparator.comparingInt(region -> region.getMinimumPoint().x()));
+
+        Map<ProtectedRegion, List<ProtectedRegion>> neighbours = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            ProtectedRegion region = sorted.get(i);
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            for (int j = i + 1; j < sorted.size(); j++) {
+                ProtectedRegion other = sorted.get(j);
+                BlockVector3 otherMin = other.getMinimumPoint();
+                if (otherMin.x() > max.x() + 1) {
+                    break;
+                }
+
+                BlockVector3 otherMax = other.getMaximumPoint();
+                if (otherMin.z() > max.z() + 1 || otherMax.z() < min.z() - 1
+                    || otherMin.y() > max.y() || otherMax.y() < min.y()) {
+                    continue;
+                }
+                neighbours.computeIfAbsent(region, k -> new ArrayList<>()).add(other);
+                neighbours.computeIfAbsent(other, k -> new ArrayList<>()).add(region);
+            }
+        }
+        return neighbours;
+    }
+}
@@ -0,0 +1,136 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tracks which players are currently rendering which regions, the inverse of the render plans.
+ * <p>
+ * When a region is edited or deleted, only its viewers need to be recomputed instead of every player.
+ * Only used on the main thread.
+ */
+public class RegionViewerIndex {
+
+    private final Map<UUID, ViewedRegions> playerRegions = new HashMap<>();
+    private final Map<UUID, Map<String, Set<UUID>>> regionViewers = new HashMap<>();
+
+    /**
+     * Replaces the regions a player is rendering.
+     *
+     * @param player  the player
+     * @param world   the world the regions are in
+     * @param regions the regions rendered for the player
+     */
+    public void setRegions(@NotNull Player player, @NotNull World world, @NotNull Collection<ProtectedRegion> regions) {
+        UUID playerId = player.getUniqueId();
+        ViewedRegions old = playerRegions.get(playerId);
+        if (regions.isEmpty()) {
+            if (old != null) {
+                clearPlayer(playerId);
+            }
+            return;
+        }
+
+        Set<String> ids = new HashSet<>(regions.size() * 2);
+        for (ProtectedRegion region : regions) {
+            ids.add(region.getId());
+        }
+
+        UUID worldId = world.getUID();
+        if (old != null && old.worldId().equals(worldId) && old.regionIds().equals(ids)) {
+            // Most cycles render the same regions as the last one
+            return;
+        }
+
+        if (old != null) {
+            for (String id : old.regionIds()) {
+                if (!old.worldId().equals(worldId) || !ids.contains(id)) {
+                    removeViewer(old.worldId(), id, playerId);
+                }
+            }
+        }
+
+        Map<String, Set<UUID>> viewers = regionViewers.computeIfAbsent(worldId, k -> new HashMap<>());
+        for (String id : ids) {
+            viewers.computeIfAbsent(id, k -> new HashSet<>()).add(playerId);
+        }
+        playerRegions.put(playerId, new ViewedRegions(worldId, ids));
+    }
+
+    /**
+     * Gets the players currently rendering a region.
+     *
+     * @param world    the world of the region
+     * @param regionId the region id
+     * @return a copy of the viewer UUIDs
+     */
+    @NotNull
+    public Set<UUID> getViewers(@NotNull World world, @NotNull String regionId) {
+        Map<String, Set<UUID>> viewers = regionViewers.get(world.getUID());
+        if (viewers == null) {
+            return Collections.emptySet();
+        }
+        Set<UUID> regionViewerIds = viewers.get(regionId.toLowerCase());
+        return regionViewerIds != null ? new HashSet<>(regionViewerIds) : Collections.emptySet();
+    }
+
+    /**
+     * Gets the number of regions rendered for anyone.
+     *
+     * @return the number of viewed regions across all worlds
+     */
+    public int getViewedRegionCount() {
+        int count = 0;
+        for (Map<String, Set<UUID>> viewers : regionViewers.values()) {
+            count += viewers.size();
+        }
+        return count;
+    }
+
+    /**
+     * Forgets a player, e.g. when they disconnect.
+     *
+     * @param playerId the player UUID
+     */
+    public void clearPlayer(@NotNull UUID playerId) {
+        ViewedRegions old = playerRegions.remove(playerId);
+        if (old != null) {
+            for (String id : old.regionIds()) {
+                removeViewer(old.worldId(), id, playerId);
+            }
+        }
+    }
+
+    private void removeViewer(@NotNull UUID worldId, @NotNull String regionId, @NotNull UUID playerId) {
+        Map<String, Set<UUID>> viewers = regionViewers.get(worldId);
+        if (viewers == null) {
+            return;
+        }
+        Set<UUID> regionViewerIds = viewers.get(regionId);
+        if (regionViewerIds != null) {
+            regionViewerIds.remove(playerId);
+            if (regionViewerIds.isEmpty()) {
+                viewers.remove(regionId);
+                if (viewers.isEmpty()) {
+                    regionViewers.remove(worldId);
+                }
+            }
+        }
+    }
+
+    /**
+     * The regions a player renders, all in one world.
+     */
+    private record ViewedRegions(@NotNull UUID worldId, @NotNull Set<String> regionIds) {
+    }
+}
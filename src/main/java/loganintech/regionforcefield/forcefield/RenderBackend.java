@@ -0,0 +1,29 @@
+package loganintech.regionforcefield.forcefield;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How forcefields are drawn on the client.
+ */
+public enum RenderBackend {
+
+    /** Fake block changes and dust particles, re-evaluated every cycle. */
+    BLOCKS,
+
+    /** Scaled, translucent block display entities, spawned once per wall tile and only shown to viewers. */
+    DISPLAY;
+
+    /**
+     * Parses a backend from its config name.
+     *
+     * @param name the config value
+     * @return the backend, or null if the name is unknown
+     */
+    public static RenderBackend fromName(@NotNull String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package loganintech.regionforcefield.forcefield;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The particles and fake blocks a player should see this cycle.
+ * Built off the main thread from region geometry alone, then sent on the main thread,
+ * where the world is checked for chunk state and air.
+ */
+public class RenderPlan {
+
+    // x, y, z, offset x, offset y, offset z, count
+    private static final int PARTICLE_STRIDE = 7;
+
+    private final World world;
+    private final Set<Location> blocks = new HashSet<>();
+    private double[] particles = new double[PARTICLE_STRIDE * 64];
+    private int particleCount;
+    private final List<ProtectedRegion> regions = new ArrayList<>();
+    private HeightmapCache occlusion;
+    private double bandMinY = -Double.MAX_VALUE;
+    private double bandMaxY = Double.MAX_VALUE;
+    private ParticleLevel particleLevel = ParticleLevel.FULL;
+    private double viewerX;
+    private double viewerZ;
+    private double particleRangeSquared = Double.MAX_VALUE;
+    private int reducedParticles;
+    private ProtectedRegion unionRegion;
+    private List<ProtectedRegion> unionNeighbours = Collections.emptyList();
+    private final int[] unionBounds = new int[6];
+    private final List<ProtectedRegion> segmentNeighbours = new ArrayList<>();
+    private int[] segmentBounds = new int[6 * 4];
+    private int densityStride = 1;
+    private final Map<String, Integer> regionStrides = new HashMap<>();
+
+    /**
+     * Creates an empty plan.
+     *
+     * @param world the world all points are in
+     */
+    public RenderPlan(@NotNull World world) {
+        this.world = world;
+    }
+
+    @NotNull
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Culls points below the terrain surface while building this plan.
+     * Only used when the viewer is above ground, since underground they could see those points.
+     *
+     * @param heightmaps the surface heights to cull against
+     */
+    public void setOcclusion(@Nullable HeightmapCache heightmaps) {
+        this.occlusion = heightmaps;
+    }
+
+    /**
+     * Only renders the slice of each region around the viewer's height while building this plan.
+     *
+     * @param viewerY    the viewer's y coordinate
+     * @param halfHeight how far above and below the viewer to render
+     */
+    public void setHeightBand(double viewerY, int halfHeight) {
+        this.bandMinY = viewerY - halfHeight;
+        this.bandMaxY = viewerY + halfHeight;
+    }
+
+    /**
+     * Limits the particles added to this plan to what the viewer's client will show: none when off,
+     * about half when reduced, and only within its view distance.
+     *
+     * @param level         the viewer's particle level
+     * @param viewerX       the viewer's x coordinate
+     * @param viewerZ       the viewer's z coordinate
+     * @param rangeInBlocks the horizontal distance beyond which the client has no chunks
+     */
+    public void setParticleLimits(@NotNull ParticleLevel level, double viewerX, double viewerZ, int rangeInBlocks) {
+        this.particleLevel = level;
+        this.viewerX = viewerX;
+        this.viewerZ = viewerZ;
+        this.particleRangeSquared = (double) rangeInBlocks * rangeInBlocks;
+    }
+
+    /**
+     * Sets the region whose surface is added next and the blocked regions touching it. Points of the
+     * surface that can't be reached from outside the union of these regions are left out, which drops
+     * shared walls and walls nested inside another region.
+     *
+     * @param region     the region being rendered, or null to stop clipping
+     * @param neighbours the blocked regions touching or overlapping it, see {@link RegionUnion}
+     */
+    public void setUnion(@Nullable ProtectedRegion region, @NotNull List<ProtectedRegion> neighbours) {
+        this.unionRegion = region;
+        this.unionNeighbours = region != null ? neighbours : Collections.emptyList();
+        this.segmentNeighbours.clear();
+        if (region != null) {
+            writeBounds(region, unionBounds, 0);
+        }
+    }
+
+    /**
+     * Starts a wall or edge of the region set by {@link #setUnion}, given its bounding box. Only the neighbours
+     * whose bounding box comes within a block of the segment are checked for its points, so most segments
+     * skip the per-point checks entirely. Must be called before adding the points of each segment.
+     *
+     * @return false if the whole segment lies inside a cuboid neighbour and can be skipped
+     */
+    public boolean clipSegment(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        segmentNeighbours.clear();
+        if (unionNeighbours.isEmpty()) {
+            return true;
+        }
+
+        // Points are checked against the blocks next to them horizontally
+        int fromX = (int) Math.floor(minX) - 1;
+        int fromY = (int) Math.floor(minY);
+        int fromZ = (int) Math.floor(minZ) - 1;
+        int toX = (int) Math.floor(maxX) + 1;
+        int toY = (int) Math.floor(maxY);
+        int toZ = (int) Math.floor(maxZ) + 1;
+        int[] bounds = new int[6];
+        for (ProtectedRegion neighbour : unionNeighbours) {
+            writeBounds(neighbour, bounds, 0);
+            if (bounds[0] > toX || bounds[3] < fromX || bounds[1] > toY || bounds[4] < fromY
+                || bounds[2] > toZ || bounds[5] < fromZ) {
+                continue;
+            }
+
+            // A cuboid is its bounding box, so one covering the segment and its sides encloses every point
+            if (neighbour instanceof ProtectedCuboidRegion && bounds[0] <= fromX && bounds[3] >= toX
+                && bounds[1] <= fromY && bounds[4] >= toY && bounds[2] <= fromZ && bounds[5] >= toZ) {
+                segmentNeighbours.clear();
+                return false;
+            }
+
+            int index = segmentNeighbours.size() * 6;
+            if (index + 6 > segmentBounds.length) {
+                segmentBounds = Arrays.copyOf(segmentBounds, segmentBounds.length * 2);
+            }
+            System.arraycopy(bounds, 0, segmentBounds, index, 6);
+            segmentNeighbours.add(neighbour);
+        }
+        return true;
+    }
+
+    private static void writeBounds(@NotNull ProtectedRegion region, @NotNull int[] bounds, int index) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        bounds[index] = min.x();
+        bounds[index + 1] = min.y();
+        bounds[index + 2] = min.z();
+        bounds[index + 3] = max.x();
+        bounds[index + 4] = max.y();
+        bounds[index + 5] = max.z();
+    }
+
+    private static boolean isInBounds(@NotNull int[] bounds, int index, int x, int y, int z) {
+        return x >= bounds[index] && x <= bounds[index + 3] && y >= bounds[index + 1] && y <= bounds[index + 4]
+            && z >= bounds[index + 2] && z <= bounds[index + 5];
+    }
+
+    /**
+     * Sets how sparse the fake blocks of the regions added next are. Blocks of a stride are a subset of
+     * the blocks of any smaller stride, so lowering it only adds blocks.
+     *
+     * @param stride place only every stride-th block along each axis of a surface, a power of two
+     */
+    public void setDensityStride(int stride) {
+        this.densityStride = Math.max(1, stride);
+    }
+
+    /**
+     * Gets how sparse the fake blocks of the region being added are.
+     *
+     * @return the stride, 1 for full density
+     */
+    public int getDensityStride() {
+        return densityStride;
+    }
+
+    /**
+     * Checks whether a surface point is enclosed by the union: the blocks on all four horizontal sides
+     * of it are inside the rendered region or one of its neighbours, so no one can stand next to it.
+     */
+    private boolean isInsideUnion(double x, double y, double z) {
+        if (segmentNeighbours.isEmpty()) {
+            return false;
+        }
+        int blockX = (int) Math.floor(x);
+        int blockY = (int) Math.floor(y);
+        int blockZ = (int) Math.floor(z);
+        return isInUnion(blockX + 1, blockY, blockZ) && isInUnion(blockX - 1, blockY, blockZ)
+            && isInUnion(blockX, blockY, blockZ + 1) && isInUnion(blockX, blockY, blockZ - 1);
+    }
+
+    private boolean isInUnion(int x, int y, int z) {
+        // Bounding boxes first, polygon containment walks every point of the polygon
+        if (isInBounds(unionBounds, 0, x, y, z) && unionRegion.contains(x, y, z)) {
+            return true;
+        }
+        for (int i = 0; i < segmentNeighbours.size(); i++) {
+            if (isInBounds(segmentBounds, i * 6, x, y, z) && segmentNeighbours.get(i).contains(x, y, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the viewer gets any particles, so their geometry can be skipped otherwise.
+     *
+     * @return false if the viewer's particles are off
+     */
+    public boolean acceptsParticles() {
+        return particleLevel != ParticleLevel.OFF;
+    }
+
+    /**
+     * Gets the lowest y rendered for the viewer.
+     *
+     * @return the bottom of the height band, or {@code -Double.MAX_VALUE} without a band
+     */
+    public double getBandMinY() {
+        return bandMinY;
+    }
+
+    /**
+     * Gets the highest y rendered for the viewer.
+     *
+     * @return the top of the height band, or {@code Double.MAX_VALUE} without a band
+     */
+    public double getBandMaxY() {
+        return bandMaxY;
+    }
+
+    /**
+     * Checks whether a height lies within the viewer's height band.
+     *
+     * @param y the y coordinate
+     * @return true if points at this height are rendered
+     */
+    public boolean isInBand(double y) {
+        return y >= bandMinY && y <= bandMaxY;
+    }
+
+    /**
+     * Gets the y below which points of a column are buried and can be culled.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the lowest visible y, or {@link HeightmapCache#UNKNOWN} if nothing is culled
+     */
+    public int getVisibleFromY(double x, double z) {
+        if (occlusion == null) {
+            return HeightmapCache.UNKNOWN;
+        }
+        return occlusion.getSurfaceY(world, (int) Math.floor(x), (int) Math.floor(z));
+    }
+
+    /**
+     * Checks whether a point is buried below the terrain surface.
+     *
+     * @return true if the point can be culled
+     */
+    public boolean isOccluded(double x, double y, double z) {
+        return occlusion != null && Math.floor(y) < getVisibleFromY(x, z);
+    }
+
+    /**
+     * Adds a single particle.
+     */
+    public void addParticle(double x, double y, double z) {
+        addParticles(x, y, z, 1, 0, 0, 0);
+    }
+
+    /**
+     * Adds a particle packet that spawns several particles spread around a centre.
+     * The offsets are the client-side random spread on each axis.
+     */
+    public void addParticles(double x, double y, double z, int count, double offsetX, double offsetY, double offsetZ) {
+        double dx = x - viewerX;
+        double dz = z - viewerZ;
+        if (dx * dx + dz * dz > particleRangeSquared || isInsideUnion(x, y, z)) {
+            return;
+        }
+
+        if (particleLevel != ParticleLevel.FULL) {
+            if (particleLevel == ParticleLevel.OFF) {
+                return;
+            }
+            // Halve spread packets, and drop every other single particle
+            if (count > 1) {
+                count = (count + 1) / 2;
+            } else if ((reducedParticles++ & 1) != 0) {
+                return;
+            }
+        }
+
+        int index = particleCount * PARTICLE_STRIDE;
+        if (index + PARTICLE_STRIDE > particles.length) {
+            particles = Arrays.copyOf(particles, particles.length * 2);
+        }
+        particles[index] = x;
+        particles[index + 1] = y;
+        particles[index + 2] = z;
+        particles[index + 3] = offsetX;
+        particles[index + 4] = offsetY;
+        particles[index + 5] = offsetZ;
+        particles[index + 6] = count;
+        particleCount++;
+    }
+
+    /**
+     * Adds a candidate fake block. It is only sent if the location is air when the plan is sent.
+     */
+    public void addBlock(double x, double y, double z) {
+        if (isInsideUnion(x, y, z)) {
+            return;
+        }
+        blocks.add(new Location(world, Math.floor(x), Math.floor(y), Math.floor(z)));
+    }
+
+    /**
+     * Gets the number of particle packets in the plan.
+     *
+     * @return the number of packets
+     */
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    public double getParticleX(int index) {
+        return particles[index * PARTICLE_STRIDE];
+    }
+
+    public double getParticleY(int index) {
+        return particles[index * PARTICLE_STRIDE + 1];
+    }
+
+    public double getParticleZ(int index) {
+        return particles[index * PARTICLE_STRIDE + 2];
+    }
+
+    public double getParticleOffsetX(int index) {
+        return particles[index * PARTICLE_STRIDE + 3];
+    }
+
+    public double getParticleOffsetY(int index) {
+        return particles[index * PARTICLE_STRIDE + 4];
+    }
+
+    public double getParticleOffsetZ(int index) {
+        return particles[index * PARTICLE_STRIDE + 5];
+    }
+
+    /**
+     * Gets how many particles a packet spawns.
+     *
+     * @param index the packet index
+     * @return the particle count of the packet
+     */
+    public int getParticleAmount(int index) {
+        return (int) particles[index * PARTICLE_STRIDE + 6];
+    }
+
+    /**
+     * Gets the candidate fake block locations.
+     *
+     * @return block locations
+     */
+    @NotNull
+    public Set<Location> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Records that a region was rendered into this plan.
+     *
+     * @param region the region
+     */
+    public void addRegion(@NotNull ProtectedRegion region) {
+        regions.add(region);
+        regionStrides.put(region.getId(), densityStride);
+    }
+
+    /**
+     * Gets the density stride each region of this plan was rendered with.
+     *
+     * @return the strides by region id
+     */
+    @NotNull
+    public Map<String, Integer> getRegionStrides() {
+        return regionStrides;
+    }
+
+    /**
+     * Gets the regions rendered into this plan.
+     *
+     * @return the regions
+     */
+    @NotNull
+    public List<ProtectedRegion> getRegions() {
+        return regions;
+    }
+
+    public int getRegionCount() {
+        return regions.size();
+    }
+}
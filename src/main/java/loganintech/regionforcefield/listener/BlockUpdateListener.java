@@ -0,0 +1,113 @@
+package loganintech.regionforcefield.listener;
+
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ForcefieldRenderer;
+import org.bukkit.Chunk;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Watches for server-side block changes that overwrite fake blocks on the client,
+ * so only the affected fake blocks get re-sent. Also keeps the occlusion heightmaps current.
+ */
+public class BlockUpdateListener implements Listener {
+
+    private final RegionForcefieldPlugin plugin;
+
+    public BlockUpdateListener(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(@NotNull BlockPhysicsEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBlockBreak(@NotNull BlockBreakEvent event) {
+        // Also handled when cancelled, since the server re-sends the block to the breaker
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBlockPlace(@NotNull BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(@NotNull BlockFromToEvent event) {
+        invalidate(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(@NotNull BlockFormEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(@NotNull BlockFadeEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(@NotNull EntityChangeBlockEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(@NotNull BlockExplodeEvent event) {
+        invalidateAll(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(@NotNull EntityExplodeEvent event) {
+        invalidateAll(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(@NotNull ChunkLoadEvent event) {
+        // Display tiles in the chunk can be spawned now, or were removed with it when it unloaded
+        Chunk chunk = event.getChunk();
+        plugin.getDisplayRenderer().onChunkLoad(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(@NotNull ChunkUnloadEvent event) {
+        // Heightmaps of unloaded chunks can't be rebuilt until they load again
+        Chunk chunk = event.getChunk();
+        plugin.getForcefieldRenderer().getHeightmaps().forgetChunk(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    private void invalidateAll(@NotNull List<Block> blocks) {
+        for (Block block : blocks) {
+            invalidate(block);
+        }
+    }
+
+    private void invalidate(@NotNull Block block) {
+        ForcefieldRenderer renderer = plugin.getForcefieldRenderer();
+        renderer.getHeightmaps().invalidate(block);
+
+        // Physics events fire constantly, so bail out before allocating anything
+        if (renderer.getBlockTracker().isEmpty()) {
+            return;
+        }
+        renderer.invalidateBlock(block.getLocation());
+    }
+}
@@ -1,9 +1,18 @@
 package loganintech.regionforcefield.listener;
 
+import io.papermc.paper.event.packet.PlayerChunkLoadEvent;
+import io.papermc.paper.event.packet.PlayerChunkUnloadEvent;
 import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ForcefieldRenderer;
+import org.bukkit.Chunk;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerPortalEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -21,5 +30,55 @@ public class PlayerListener implements Listener {
     public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
         // Clean up fake blocks when player disconnects
         plugin.getForcefieldRenderer().clearBlocks(event.getPlayer());
+        plugin.getDisplayRenderer().clearPlayer(event.getPlayer());
+        plugin.getUpdateTask().forgetPlayer(event.getPlayer());
+        plugin.getQueryService().forgetPlayer(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(@NotNull PlayerTeleportEvent event) {
+        // Compute the forcefield at the destination while the teleport is carried out
+        plugin.getUpdateTask().prefetch(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerPortal(@NotNull PlayerPortalEvent event) {
+        // Portal travel has its own event, not a teleport event
+        plugin.getUpdateTask().prefetch(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(@NotNull PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        plugin.getForcefieldRenderer().forgetWorld(player);
+        plugin.getDisplayRenderer().clearPlayer(player);
+
+        // Respawns and other plugins can move players between worlds without a teleport event
+        if (!plugin.getUpdateTask().hasPrefetch(player)) {
+            plugin.getUpdateTask().queuePlayerUpdate(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChunkLoad(@NotNull PlayerChunkLoadEvent event) {
+        Player player = event.getPlayer();
+        Chunk chunk = event.getChunk();
+        ForcefieldRenderer renderer = plugin.getForcefieldRenderer();
+
+        // A (re)sent chunk replaces any fake blocks the client had inside it, unless they were injected into it
+        if (!renderer.isChunkInjectionEnabled()) {
+            renderer.invalidateChunk(player, chunk.getX(), chunk.getZ());
+        }
+
+        // Render the parts of the forcefield that were skipped while the chunk was missing
+        if (renderer.isAwaitingChunk(player, chunk.getChunkKey())) {
+            plugin.getUpdateTask().queuePlayerUpdate(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChunkUnload(@NotNull PlayerChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getForcefieldRenderer().forgetChunk(event.getPlayer(), chunk.getX(), chunk.getZ());
     }
 }
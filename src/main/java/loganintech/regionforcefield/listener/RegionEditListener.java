@@ -0,0 +1,113 @@
+package loganintech.regionforcefield.listener;
+
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Watches WorldGuard region commands so edited regions are re-rendered right away, for their viewers only.
+ * <p>
+ * WorldGuard has no events for region changes, so edits made through its API by other plugins are
+ * only picked up by the next update cycle, and changes to their forcefield flags within a few seconds.
+ */
+public class RegionEditListener implements Listener {
+
+    private static final Set<String> REGION_COMMANDS = Set.of(
+        "region", "regions", "rg", "worldguard:region", "worldguard:regions", "worldguard:rg");
+
+    private static final Set<String> EDIT_SUBCOMMANDS = Set.of(
+        "define", "def", "d", "create", "redefine", "update", "move", "claim",
+        "flag", "f", "setpriority", "priority", "pri", "setparent", "parent", "par",
+        "remove", "delete", "del", "rem",
+        "addmember", "addmem", "am", "removemember", "remmember", "removemem", "remmem", "rm",
+        "addowner", "ao", "removeowner", "ro");
+
+    private static final Set<String> BYPASS_SUBCOMMANDS = Set.of("toggle-bypass", "bypass");
+
+    /** Command flags that take a value, e.g. {@code -w world}. */
+    private static final Set<String> VALUE_FLAGS = Set.of("-w", "-g", "-h");
+
+    private final RegionForcefieldPlugin plugin;
+
+    public RegionEditListener(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(@NotNull PlayerCommandPreprocessEvent event) {
+        handleCommand(event.getPlayer(), event.getMessage().substring(1));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(@NotNull ServerCommandEvent event) {
+        handleCommand(event.getSender(), event.getCommand());
+    }
+
+    private void handleCommand(@NotNull CommandSender sender, @NotNull String commandLine) {
+        String[] args = commandLine.trim().split("\\s+");
+        if (args.length < 2 || !REGION_COMMANDS.contains(args[0].toLowerCase())) {
+            return;
+        }
+
+        String subcommand = args[1].toLowerCase();
+        if (BYPASS_SUBCOMMANDS.contains(subcommand)) {
+            // Only the sender's own access changes
+            if (sender instanceof Player player) {
+                scheduleUpdate(() -> plugin.getUpdateTask().queuePlayerUpdate(player));
+            }
+            return;
+        }
+        if (!EDIT_SUBCOMMANDS.contains(subcommand)) {
+            return;
+        }
+
+        // The region id is the first argument that isn't a flag
+        String worldName = null;
+        String regionId = null;
+        for (int i = 2; i < args.length && regionId == null; i++) {
+            String arg = args[i];
+            if (arg.startsWith("-")) {
+                if (VALUE_FLAGS.contains(arg.toLowerCase()) && i + 1 < args.length) {
+                    if (arg.equalsIgnoreCase("-w")) {
+                        worldName = args[i + 1];
+                    }
+                    i++;
+                }
+            } else {
+                regionId = arg;
+            }
+        }
+        if (regionId == null) {
+            return;
+        }
+
+        World world = worldName != null ? plugin.getServer().getWorld(worldName)
+            : sender instanceof Player player ? player.getWorld() : null;
+        if (world == null) {
+            return;
+        }
+
+        String id = regionId;
+        scheduleUpdate(() -> plugin.getUpdateTask().queueRegionUpdate(world, id));
+    }
+
+    /**
+     * Runs an update once the command has been executed.
+     */
+    private void scheduleUpdate(@NotNull Runnable update) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (plugin.getUpdateTask() != null) {
+                update.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package loganintech.regionforcefield.packet;
+
+import com.github.retrooper.packetevents.PacketEvents;
+import com.github.retrooper.packetevents.event.PacketListener;
+import com.github.retrooper.packetevents.event.PacketListenerCommon;
+import com.github.retrooper.packetevents.event.PacketListenerPriority;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.protocol.world.chunk.BaseChunk;
+import com.github.retrooper.packetevents.protocol.world.chunk.Column;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerChunkData;
+import io.github.retrooper.packetevents.util.SpigotConversionUtil;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ChunkInjectionIndex;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes forcefield blocks into outgoing chunk packets through PacketEvents.
+ * <p>
+ * Fake blocks then arrive with their chunk instead of as block changes after it, and survive chunk resends.
+ * This is the only class that touches PacketEvents, so the plugin still loads without it. Packets are
+ * handled on the network threads, which only read the {@link ChunkInjectionIndex} and never touch the player.
+ */
+public class ChunkPacketInjector implements PacketListener {
+
+    private final RegionForcefieldPlugin plugin;
+    private final ChunkInjectionIndex index;
+    private final int airId;
+    private final int caveAirId;
+    private final int voidAirId;
+    private PacketListenerCommon registration;
+    private volatile BlockId cachedBlockId;
+
+    /**
+     * Creates a new injector.
+     *
+     * @param plugin the plugin instance
+     * @param index  the fake blocks to inject
+     */
+    public ChunkPacketInjector(@NotNull RegionForcefieldPlugin plugin, @NotNull ChunkInjectionIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+        this.airId = getGlobalId(Material.AIR.createBlockData());
+        this.caveAirId = getGlobalId(Material.CAVE_AIR.createBlockData());
+        this.voidAirId = getGlobalId(Material.VOID_AIR.createBlockData());
+    }
+
+    /**
+     * Starts listening for chunk packets.
+     */
+    public void register() {
+        registration = PacketEvents.getAPI().getEventManager().registerListener(this, PacketListenerPriority.NORMAL);
+    }
+
+    /**
+     * Stops listening for chunk packets.
+     */
+    public void unregister() {
+        if (registration != null) {
+            PacketEvents.getAPI().getEventManager().unregisterListener(registration);
+            registration = null;
+        }
+    }
+
+    @Override
+    public void onPacketSend(@NotNull PacketSendEvent event) {
+        if (event.getPacketType() != PacketType.Play.Server.CHUNK_DATA) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        BlockData blockData = index.getBlockData();
+        if (player == null || blockData == null) {
+            return;
+        }
+
+        try {
+            WrapperPlayServerChunkData wrapper = new WrapperPlayServerChunkData(event);
+            Column column = wrapper.getColumn();
+            // The index knows the world the blocks were published for, the player can't be asked off the main thread
+            long[] blocks = index.getBlocks(player.getUniqueId(), Chunk.getChunkKey(column.getX(), column.getZ()));
+            if (blocks == null) {
+                return;
+            }
+
+            int blockId = getBlockId(blockData);
+            int minY = event.getUser().getMinWorldHeight();
+            BaseChunk[] sections = column.getChunks();
+            boolean modified = false;
+
+            for (long blockKey : blocks) {
+                int y = Block.getBlockKeyY(blockKey);
+                int sectionIndex = (y - minY) >> 4;
+                if (sectionIndex < 0 || sectionIndex >= sections.length || sections[sectionIndex] == null) {
+                    continue;
+                }
+
+                // Like block changes, fakes only replace air
+                BaseChunk section = sections[sectionIndex];
+                int x = Block.getBlockKeyX(blockKey) & 15;
+                int z = Block.getBlockKeyZ(blockKey) & 15;
+                int existing = section.getBlockId(x, y & 15, z);
+                if (existing != airId && existing != caveAirId && existing != voidAirId) {
+                    continue;
+                }
+
+                section.set(x, y & 15, z, blockId);
+                index.recordInjected(player.getUniqueId(), blockKey);
+                modified = true;
+            }
+
+            if (modified) {
+                event.markForReEncode(true);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error injecting forcefield blocks into chunk packet: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the network id of the fake block, converting it only when the material changes.
+     */
+    private int getBlockId(@NotNull BlockData blockData) {
+        BlockId cached = cachedBlockId;
+        if (cached == null || cached.blockData() != blockData) {
+            cached = new BlockId(blockData, getGlobalId(blockData));
+            cachedBlockId = cached;
+        }
+        return cached.id();
+    }
+
+    private static int getGlobalId(@NotNull BlockData blockData) {
+        return SpigotConversionUtil.fromBukkitBlockData(blockData).getGlobalId();
+    }
+
+    /**
+     * A block data and its network id, cached together so network threads never see one without the other.
+     */
+    private record BlockId(@NotNull BlockData blockData, int id) {
+    }
+}
@@ -0,0 +1,62 @@
+package loganintech.regionforcefield.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event spanning the fake block changes sent to one player. Committed on the main thread.
+ */
+@Name("regionforcefield.BlockBatch")
+@Label("Forcefield Block Batch")
+@Category("RegionForcefield")
+@Description("Sending and reverting the fake blocks of one player")
+@Enabled(false)
+@StackTrace(false)
+public final class ForcefieldBlockBatchEvent extends Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("Candidates")
+    @Description("Fake blocks in the plan")
+    int candidates;
+
+    @Label("Sent")
+    @Description("Block changes sent for fake blocks the client didn't have")
+    int sent;
+
+    @Label("Reverted")
+    @Description("Fake blocks reverted because they left the forcefield")
+    int reverted;
+
+    @Label("Tracked")
+    @Description("Fake blocks the client shows after the batch")
+    int tracked;
+
+    /**
+     * Fills in the event and commits it, if a recording wants it.
+     *
+     * @param player     the player name
+     * @param candidates the fake blocks in the plan
+     * @param sent       the block changes sent
+     * @param reverted   the fake blocks reverted
+     * @param tracked    the fake blocks shown afterwards
+     */
+    public void finish(@NotNull String player, int candidates, int sent, int reverted, int tracked) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.player = player;
+        this.candidates = candidates;
+        this.sent = sent;
+        this.reverted = reverted;
+        this.tracked = tracked;
+        commit();
+    }
+}
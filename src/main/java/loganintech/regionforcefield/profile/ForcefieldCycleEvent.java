@@ -0,0 +1,75 @@
+package loganintech.regionforcefield.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning one update cycle, from the governor check to the last send.
+ * <p>
+ * Disabled by default, so it costs nothing unless a recording enables {@code regionforcefield.Cycle}.
+ */
+@Name("regionforcefield.Cycle")
+@Label("Forcefield Cycle")
+@Category("RegionForcefield")
+@Description("One forcefield update cycle")
+@Enabled(false)
+@StackTrace(false)
+public final class ForcefieldCycleEvent extends Event {
+
+    @Label("Players")
+    int players;
+
+    @Label("Worlds")
+    int worlds;
+
+    @Label("Shards")
+    int shards;
+
+    @Label("Compute Time")
+    @Description("Time spent waiting for the worker pool to compute all shards")
+    @Timespan(Timespan.NANOSECONDS)
+    long computeTime;
+
+    @Label("Governor Level")
+    int governorLevel;
+
+    @Label("MSPT")
+    @Description("Server milliseconds per tick seen by the load governor")
+    double mspt;
+
+    @Label("Skipped")
+    @Description("Whether the load governor skipped this cycle")
+    boolean skipped;
+
+    /**
+     * Fills in the event and commits it, if a recording wants it.
+     *
+     * @param players       the players rendered
+     * @param worlds        the worlds with players in them
+     * @param shards        the shards computed on the worker pool
+     * @param computeNanos  the time spent computing the shards
+     * @param governorLevel the load governor level
+     * @param mspt          the milliseconds per tick seen by the governor
+     * @param skipped       whether the governor skipped the cycle
+     */
+    public void finish(int players, int worlds, int shards, long computeNanos, int governorLevel, double mspt,
+                       boolean skipped) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.players = players;
+        this.worlds = worlds;
+        this.shards = shards;
+        this.computeTime = computeNanos;
+        this.governorLevel = governorLevel;
+        this.mspt = mspt;
+        this.skipped = skipped;
+        commit();
+    }
+}
@@ -0,0 +1,50 @@
+package loganintech.regionforcefield.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event spanning the particles spawned for one player. Committed on the main thread.
+ */
+@Name("regionforcefield.ParticleBatch")
+@Label("Forcefield Particle Batch")
+@Category("RegionForcefield")
+@Description("Spawning the forcefield particles of one player")
+@Enabled(false)
+@StackTrace(false)
+public final class ForcefieldParticleBatchEvent extends Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("Candidates")
+    @Description("Particle spawns in the plan")
+    int candidates;
+
+    @Label("Spawned")
+    @Description("Particle spawns sent after chunk and occlusion checks")
+    int spawned;
+
+    /**
+     * Fills in the event and commits it, if a recording wants it.
+     *
+     * @param player     the player name
+     * @param candidates the particle spawns in the plan
+     * @param spawned    the particle spawns sent
+     */
+    public void finish(@NotNull String player, int candidates, int spawned) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.player = player;
+        this.candidates = candidates;
+        this.spawned = spawned;
+        commit();
+    }
+}
@@ -0,0 +1,67 @@
+package loganintech.regionforcefield.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event spanning the computation of one player's render plan.
+ * Committed on the worker thread that computed it, or the main thread for out-of-cycle updates.
+ */
+@Name("regionforcefield.PlayerUpdate")
+@Label("Forcefield Player Update")
+@Category("RegionForcefield")
+@Description("Computing the forcefields of one player")
+@Enabled(false)
+@StackTrace(false)
+public final class ForcefieldPlayerEvent extends Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("World")
+    String world;
+
+    @Label("Blocked Regions")
+    int blockedRegions;
+
+    @Label("Rendered Regions")
+    int renderedRegions;
+
+    @Label("Blocks")
+    @Description("Candidate fake blocks in the plan")
+    int blocks;
+
+    @Label("Particles")
+    @Description("Particle spawns in the plan")
+    int particles;
+
+    /**
+     * Fills in the event and commits it, if a recording wants it.
+     *
+     * @param player          the player name
+     * @param world           the world name
+     * @param blockedRegions  the regions the player can't enter
+     * @param renderedRegions the regions near enough to render
+     * @param blocks          the candidate fake blocks
+     * @param particles       the particle spawns
+     */
+    public void finish(@NotNull String player, @NotNull String world, int blockedRegions, int renderedRegions,
+                       int blocks, int particles) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.player = player;
+        this.world = world;
+        this.blockedRegions = blockedRegions;
+        this.renderedRegions = renderedRegions;
+        this.blocks = blocks;
+        this.particles = particles;
+        commit();
+    }
+}
@@ -0,0 +1,184 @@
+package loganintech.regionforcefield.profile;
+
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples the update pipeline for a while and attributes its cost to regions.
+ * <p>
+ * While a session is running the update task reports the geometry time, blocks and particles of every
+ * region it renders. The session then reports the regions sorted by cost, so the one region eating the
+ * budget is easy to find. Regions are told apart by world, since region ids are only unique per world. Recording is thread-safe, since geometry is computed on worker threads.
+ */
+public class ForcefieldProfiler {
+
+    private static final int MAX_REPORTED_REGIONS = 15;
+
+    private final RegionForcefieldPlugin plugin;
+    private final Map<String, RegionStats> regionStats = new ConcurrentHashMap<>();
+    private final LongAdder cycleNanos = new LongAdder();
+    private final LongAdder cycles = new LongAdder();
+    private volatile boolean active;
+    private volatile String playerFilter;
+    private volatile String regionFilter;
+
+    /**
+     * Creates a new profiler.
+     *
+     * @param plugin the plugin instance
+     */
+    public ForcefieldProfiler(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Checks whether a profiling session is running. Callers skip all timing when it is not.
+     *
+     * @return true while sampling
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Starts a profiling session and reports the results to the sender when it ends.
+     *
+     * @param sender       who to report to
+     * @param playerFilter only sample this player, or null for everyone
+     * @param regionFilter only sample this region id, or null for every region
+     * @param seconds      how long to sample
+     * @return false if a session is already running
+     */
+    public boolean start(@NotNull CommandSender sender, @Nullable String playerFilter,
+                         @Nullable String regionFilter, int seconds) {
+        if (active) {
+            return false;
+        }
+
+        regionStats.clear();
+        cycleNanos.reset();
+        cycles.reset();
+        this.playerFilter = playerFilter;
+        this.regionFilter = regionFilter;
+        this.active = true;
+
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> finish(sender), seconds * 20L);
+        return true;
+    }
+
+    /**
+     * Checks whether a player and region pass the session's filters.
+     *
+     * @param player   the player
+     * @param regionId the region id
+     * @return true if the render should be recorded
+     */
+    public boolean shouldRecord(@NotNull Player player, @NotNull String regionId) {
+        String playerName = playerFilter;
+        String regionName = regionFilter;
+        return active
+            && (playerName == null || playerName.equalsIgnoreCase(player.getName()))
+            && (regionName == null || regionName.equalsIgnoreCase(regionId));
+    }
+
+    /**
+     * Records the cost of rendering a region for a player.
+     *
+     * @param player        the viewer
+     * @param world         the region's world
+     * @param regionId      the region id
+     * @param geometryNanos time spent computing the region's geometry
+     * @param blocks        fake blocks generated
+     * @param particles     particle packets generated
+     */
+    public void recordRegion(@NotNull Player player, @NotNull World world, @NotNull String regionId,
+                             long geometryNanos, int blocks, int particles) {
+        RegionStats stats = regionStats.computeIfAbsent(world.getName() + ":" + regionId,
+            key -> new RegionStats(world.getName(), regionId));
+        stats.geometryNanos.add(geometryNanos);
+        stats.blocks.add(blocks);
+        stats.particles.add(particles);
+        stats.viewers.add(player.getUniqueId());
+    }
+
+    /**
+     * Records the wall time of a whole update cycle.
+     *
+     * @param nanos the cycle time
+     */
+    public void recordCycle(long nanos) {
+        cycleNanos.add(nanos);
+        cycles.increment();
+    }
+
+    private void finish(@NotNull CommandSender sender) {
+        active = false;
+
+        long totalCycleNanos = cycleNanos.sum();
+        long cycleCount = cycles.sum();
+        List<RegionStats> sorted = new ArrayList<>(regionStats.values());
+        sorted.sort(Comparator.comparingLong((RegionStats stats) -> stats.geometryNanos.sum()).reversed());
+
+        sender.sendMessage(ChatColor.GOLD + "=== Forcefield Profile ===");
+        sender.sendMessage(ChatColor.YELLOW + "Cycles: " + ChatColor.WHITE + cycleCount +
+            ChatColor.YELLOW + ", avg cycle: " + ChatColor.WHITE +
+            String.format("%.2f ms", cycleCount > 0 ? totalCycleNanos / 1_000_000.0 / cycleCount : 0));
+
+        if (sorted.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No regions were rendered while profiling.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GRAY + "world:region: geometry ms/cycle (share), blocks, particles, viewers");
+        for (int i = 0; i < Math.min(MAX_REPORTED_REGIONS, sorted.size()); i++) {
+            RegionStats stats = sorted.get(i);
+            long nanos = stats.geometryNanos.sum();
+            // Geometry runs on worker threads, so shares can add up to more than 100%
+            double share = totalCycleNanos > 0 ? nanos * 100.0 / totalCycleNanos : 0;
+            double perCycle = cycleCount > 0 ? nanos / 1_000_000.0 / cycleCount : 0;
+            sender.sendMessage(ChatColor.GRAY + stats.worldName + ":" + ChatColor.WHITE + stats.regionId +
+                ChatColor.GRAY + ": " +
+                ChatColor.WHITE + String.format("%.3f ms", perCycle) + ChatColor.GRAY +
+                String.format(" (%.1f%%)", share) + ", " +
+                ChatColor.WHITE + stats.blocks.sum() + ChatColor.GRAY + " blocks, " +
+                ChatColor.WHITE + stats.particles.sum() + ChatColor.GRAY + " particles, " +
+                ChatColor.WHITE + stats.viewers.size() + ChatColor.GRAY + " viewers");
+        }
+
+        if (sorted.size() > MAX_REPORTED_REGIONS) {
+            sender.sendMessage(ChatColor.GRAY + "... and " + (sorted.size() - MAX_REPORTED_REGIONS) + " more regions");
+        }
+    }
+
+    /**
+     * Accumulated cost of one region.
+     */
+    private static final class RegionStats {
+
+        private final String worldName;
+        private final String regionId;
+        private final LongAdder geometryNanos = new LongAdder();
+        private final LongAdder blocks = new LongAdder();
+        private final LongAdder particles = new LongAdder();
+        private final Set<UUID> viewers = ConcurrentHashMap.newKeySet();
+
+        private RegionStats(@NotNull String worldName, @NotNull String regionId) {
+            this.worldName = worldName;
+            this.regionId = regionId;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package loganintech.regionforcefield.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event spanning the geometry of one region for one player. Committed on a worker thread.
+ */
+@Name("regionforcefield.RegionRender")
+@Label("Forcefield Region Render")
+@Category("RegionForcefield")
+@Description("Computing the forcefield geometry of one region")
+@Enabled(false)
+@StackTrace(false)
+public final class ForcefieldRegionEvent extends Event {
+
+    @Label("Player")
+    String player;
+
+    @Label("Region")
+    String region;
+
+    @Label("Blocks")
+    int blocks;
+
+    @Label("Particles")
+    int particles;
+
+    /**
+     * Fills in the event and commits it, if a recording wants it.
+     *
+     * @param player    the player name
+     * @param region    the region id
+     * @param blocks    the candidate fake blocks added
+     * @param particles the particle spawns added
+     */
+    public void finish(@NotNull String player, @NotNull String region, int blocks, int particles) {
+        if (!shouldCommit()) {
+            return;
+        }
+        this.player = player;
+        this.region = region;
+        this.blocks = blocks;
+        this.particles = particles;
+        commit();
+    }
+}
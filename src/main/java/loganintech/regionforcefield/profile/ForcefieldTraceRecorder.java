@@ -0,0 +1,354 @@
+package loganintech.regionforcefield.profile;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.region.ForcefieldFlags;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records player positions per cycle and the regions they move around into a compact binary trace,
+ * so the load test can replay real load shapes. See {@link TraceFormat} for the layout.
+ * <p>
+ * The update task encodes each cycle into memory on the main thread, and a single writer thread
+ * compresses it to disk, so recording costs a few small writes per player per cycle.
+ */
+public class ForcefieldTraceRecorder {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final RegionForcefieldPlugin plugin;
+    private final ByteArrayOutputStream cycleBuffer = new ByteArrayOutputStream(4096);
+    private final DataOutputStream cycleOut = new DataOutputStream(cycleBuffer);
+    private final Map<UUID, Integer> playerIndexes = new HashMap<>();
+    private final Map<UUID, Integer> worldIndexes = new HashMap<>();
+    private TraceFile traceFile;
+    private CommandSender sender;
+    private BukkitTask stopTask;
+    private long cycles;
+    private boolean active;
+
+    /**
+     * Creates a new trace recorder.
+     *
+     * @param plugin the plugin instance
+     */
+    public ForcefieldTraceRecorder(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Checks whether a trace is being recorded. Callers skip all recording when it is not.
+     *
+     * @return true while recording
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Starts recording a trace into the plugin's traces folder. Must be called on the main thread.
+     *
+     * @param sender  who to report to when the trace ends
+     * @param seconds how long to record
+     * @return false if a trace is already being recorded
+     */
+    public boolean start(@NotNull CommandSender sender, int seconds) {
+        if (active) {
+            return false;
+        }
+
+        File folder = new File(plugin.getDataFolder(), "traces");
+        File file = new File(folder, "trace-" + LocalDateTime.now().format(FILE_TIME) + TraceFormat.FILE_EXTENSION);
+        this.sender = sender;
+        this.cycles = 0;
+        playerIndexes.clear();
+        worldIndexes.clear();
+        cycleBuffer.reset();
+
+        // Each trace gets its own writer and stream, so a closing trace never touches the next one
+        this.traceFile = new TraceFile(file);
+        long intervalTicks = plugin.getConfig().getLong("update-interval-ticks", 20L);
+        traceFile.open(System.currentTimeMillis(), (int) intervalTicks);
+
+        this.active = true;
+        this.stopTask = plugin.getServer().getScheduler().runTaskLater(plugin, this::stop, seconds * 20L);
+        return true;
+    }
+
+    /**
+     * Records a world's entry-denied regions the first time the world has players in a trace.
+     * Must be called on the main thread.
+     *
+     * @param world         the world
+     * @param deniedRegions the world's entry-denied regions
+     */
+    public void recordWorld(@NotNull World world, @NotNull List<ProtectedRegion> deniedRegions) {
+        if (worldIndexes.containsKey(world.getUID())) {
+            return;
+        }
+
+        int index = worldIndexes.size();
+        worldIndexes.put(world.getUID(), index);
+        try {
+            cycleOut.writeByte(TraceFormat.TAG_WORLD);
+            cycleOut.writeShort(index);
+            cycleOut.writeUTF(world.getName());
+            cycleOut.writeInt(world.getMinHeight());
+            cycleOut.writeInt(world.getMaxHeight());
+            cycleOut.writeInt(deniedRegions.size());
+            for (ProtectedRegion region : deniedRegions) {
+                writeRegion(region);
+            }
+        } catch (IOException e) {
+            // Writing to memory doesn't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records a player's position in the current cycle. Must be called on the main thread,
+     * after {@link #recordWorld} for the player's world.
+     *
+     * @param player   the player
+     * @param location the position the cycle renders from
+     */
+    public void recordPlayer(@NotNull Player player, @NotNull Location location) {
+        Integer worldIndex = worldIndexes.get(location.getWorld().getUID());
+        if (worldIndex == null) {
+            return;
+        }
+
+        try {
+            cycleOut.writeByte(TraceFormat.TAG_PLAYER);
+            cycleOut.writeInt(playerIndexes.computeIfAbsent(player.getUniqueId(), k -> playerIndexes.size()));
+            cycleOut.writeShort(worldIndex);
+            cycleOut.writeFloat((float) location.getX());
+            cycleOut.writeFloat((float) location.getY());
+            cycleOut.writeFloat((float) location.getZ());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Closes the current cycle and hands it to the writer thread. Must be called on the main thread.
+     *
+     * @param tick the server tick the cycle ran on
+     */
+    public void endCycle(int tick) {
+        try {
+            cycleOut.writeByte(TraceFormat.TAG_CYCLE_END);
+            cycleOut.writeInt(tick);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] bytes = cycleBuffer.toByteArray();
+        cycleBuffer.reset();
+        cycles++;
+        traceFile.write(bytes);
+    }
+
+    /**
+     * Stops recording and closes the trace file, if a trace is being recorded.
+     */
+    public void stop() {
+        if (!active) {
+            return;
+        }
+        active = false;
+        if (stopTask != null) {
+            stopTask.cancel();
+            stopTask = null;
+        }
+
+        long cycleCount = cycles;
+        int playerCount = playerIndexes.size();
+        TraceFile closing = traceFile;
+        traceFile = null;
+        closing.close();
+
+        String message = "Trace written to " + closing.file.getPath() + " (" + cycleCount + " cycles, " + playerCount + " players)";
+        if (plugin.isEnabled()) {
+            // Report once the writer has flushed everything
+            CommandSender recipient = sender;
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                closing.awaitClosed();
+                plugin.getServer().getScheduler().runTask(plugin, () ->
+                    recipient.sendMessage(ChatColor.GREEN + message));
+            });
+        } else {
+            closing.awaitClosed();
+            plugin.getLogger().info(message);
+        }
+        sender = null;
+    }
+
+    private void writeRegion(@NotNull ProtectedRegion region) throws IOException {
+        cycleOut.writeUTF(region.getId());
+
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        if (region instanceof ProtectedPolygonalRegion polygon) {
+            cycleOut.writeByte(TraceFormat.SHAPE_POLYGON);
+            cycleOut.writeInt(min.y());
+            cycleOut.writeInt(max.y());
+            List<BlockVector2> points = polygon.getPoints();
+            cycleOut.writeInt(points.size());
+            for (BlockVector2 point : points) {
+                cycleOut.writeInt(point.x());
+                cycleOut.writeInt(point.z());
+            }
+        } else {
+            cycleOut.writeByte(region instanceof ProtectedCuboidRegion ? TraceFormat.SHAPE_CUBOID : TraceFormat.SHAPE_OTHER);
+            cycleOut.writeInt(min.x());
+            cycleOut.writeInt(min.y());
+            cycleOut.writeInt(min.z());
+            cycleOut.writeInt(max.x());
+            cycleOut.writeInt(max.y());
+            cycleOut.writeInt(max.z());
+        }
+
+        // Flags that failed to register are left out
+        StateFlag.State render = ForcefieldFlags.RENDER != null ? region.getFlag(ForcefieldFlags.RENDER) : null;
+        ForcefieldFlags.WallMode mode = ForcefieldFlags.MODE != null ? region.getFlag(ForcefieldFlags.MODE) : null;
+        Double particleSpacing = ForcefieldFlags.PARTICLE_SPACING != null ? region.getFlag(ForcefieldFlags.PARTICLE_SPACING) : null;
+        Double blockSpacing = ForcefieldFlags.BLOCK_SPACING != null ? region.getFlag(ForcefieldFlags.BLOCK_SPACING) : null;
+        Integer maxDistance = ForcefieldFlags.MAX_DISTANCE != null ? region.getFlag(ForcefieldFlags.MAX_DISTANCE) : null;
+
+        int mask = (render != null ? TraceFormat.FLAG_RENDER : 0)
+            | (mode != null ? TraceFormat.FLAG_MODE : 0)
+            | (particleSpacing != null ? TraceFormat.FLAG_PARTICLE_SPACING : 0)
+            | (blockSpacing != null ? TraceFormat.FLAG_BLOCK_SPACING : 0)
+            | (maxDistance != null ? TraceFormat.FLAG_MAX_DISTANCE : 0);
+        cycleOut.writeByte(mask);
+        if (render != null) {
+            cycleOut.writeByte(render == StateFlag.State.DENY ? 1 : 0);
+        }
+        if (mode != null) {
+            cycleOut.writeByte(mode.ordinal());
+        }
+        if (particleSpacing != null) {
+            cycleOut.writeDouble(particleSpacing);
+        }
+        if (blockSpacing != null) {
+            cycleOut.writeDouble(blockSpacing);
+        }
+        if (maxDistance != null) {
+            cycleOut.writeInt(maxDistance);
+        }
+    }
+    /**
+     * The file of one recording and the single thread that writes it. The stream is only touched by that thread.
+     */
+    private final class TraceFile {
+
+        private final File file;
+        private final ExecutorService writer;
+        private DataOutputStream out;
+
+        private TraceFile(@NotNull File file) {
+            this.file = file;
+            this.writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RegionForcefield-TraceWriter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * Creates the file and writes the trace header.
+         */
+        private void open(long startMillis, int intervalTicks) {
+            writer.execute(() -> {
+                try {
+                    file.getParentFile().mkdirs();
+                    OutputStream stream = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)), 65536);
+                    out = new DataOutputStream(stream);
+                    out.writeInt(TraceFormat.MAGIC);
+                    out.writeShort(TraceFormat.VERSION);
+                    out.writeLong(startMillis);
+                    out.writeInt(intervalTicks);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Error creating trace file " + file + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+            });
+        }
+
+        /**
+         * Appends an encoded cycle.
+         */
+        private void write(byte[] bytes) {
+            writer.execute(() -> {
+                if (out == null) {
+                    return;
+                }
+                try {
+                    out.write(bytes);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Error writing trace file " + file + ": " + e.getMessage());
+                    e.printStackTrace();
+                    out = null;
+                }
+            });
+        }
+
+        /**
+         * Ends the trace and closes the file once everything before it is written, then stops the writer.
+         */
+        private void close() {
+            writer.execute(() -> {
+                try {
+                    if (out != null) {
+                        out.writeByte(TraceFormat.TAG_END);
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Error closing trace file " + file + ": " + e.getMessage());
+                    e.printStackTrace();
+                } finally {
+                    out = null;
+                }
+            });
+            writer.shutdown();
+        }
+
+        private void awaitClosed() {
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package loganintech.regionforcefield.profile;
+
+/**
+ * Layout of the movement trace files written by {@link ForcefieldTraceRecorder} and replayed by the load test.
+ * <p>
+ * A trace is a gzipped stream of big-endian values: a header of {@link #MAGIC}, {@link #VERSION}, the start
+ * time in epoch millis and the update interval in ticks, followed by tagged records:
+ * <ul>
+ *   <li>{@link #TAG_WORLD}: world index, name, min and max height, then the world's entry-denied regions,
+ *       written the first time a world has players</li>
+ *   <li>{@link #TAG_PLAYER}: player index, world index and x, y, z as floats, for every player in a cycle</li>
+ *   <li>{@link #TAG_CYCLE_END}: the server tick the cycle ran on, closing the cycle's player records</li>
+ *   <li>{@link #TAG_END}: the end of the trace</li>
+ * </ul>
+ * A region is its id, a shape byte and its bounds: {@link #SHAPE_CUBOID} and {@link #SHAPE_OTHER} store the
+ * minimum and maximum points, {@link #SHAPE_POLYGON} stores min and max y and its x, z points. The shape is
+ * followed by a bitmask of the forcefield flags set on the region and their values, in {@code FLAG_*} order.
+ * Players are numbered in the order they first appear, so traces contain no names or UUIDs.
+ */
+public final class TraceFormat {
+
+    public static final int MAGIC = 0x52464654;
+    public static final short VERSION = 1;
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_WORLD = 1;
+    public static final byte TAG_PLAYER = 2;
+    public static final byte TAG_CYCLE_END = 3;
+
+    public static final byte SHAPE_CUBOID = 0;
+    public static final byte SHAPE_POLYGON = 1;
+    public static final byte SHAPE_OTHER = 2;
+
+    /** forcefield-render, written as a byte: 0 for allow, 1 for deny. */
+    public static final int FLAG_RENDER = 1;
+    /** forcefield-mode, written as the ordinal byte. */
+    public static final int FLAG_MODE = 1 << 1;
+    /** forcefield-particle-spacing, written as a double. */
+    public static final int FLAG_PARTICLE_SPACING = 1 << 2;
+    /** forcefield-block-spacing, written as a double. */
+    public static final int FLAG_BLOCK_SPACING = 1 << 3;
+    /** forcefield-max-distance, written as an int. */
+    public static final int FLAG_MAX_DISTANCE = 1 << 4;
+
+    public static final String FILE_EXTENSION = ".fftrace";
+
+    private TraceFormat() {
+    }
+}
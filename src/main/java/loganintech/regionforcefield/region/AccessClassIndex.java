@@ -0,0 +1,127 @@
+package loganintech.regionforcefield.region;
+
+import com.sk89q.worldguard.domains.DefaultDomain;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups players of a world into access classes, so players with the same access share one blocked set.
+ * <p>
+ * A player's access fingerprint is the set of entry-denied regions they can bypass, through bypass
+ * permissions or membership. It is found from the player's bypass permissions and a membership index instead
+ * of checking every region's domains, and the blocked set of each fingerprint is computed once. Built and queried on the
+ * main thread once per world per cycle, workers only get the resulting blocked sets.
+ */
+public class AccessClassIndex {
+
+    private final List<ProtectedRegion> deniedRegions;
+    private final Map<String, ProtectedRegion> regionsById = new LinkedHashMap<>();
+    private final Map<UUID, Set<String>> memberRegionIds = new HashMap<>();
+    private final List<ProtectedRegion> unindexedRegions = new ArrayList<>();
+    private final Map<Set<String>, Set<ProtectedRegion>> blockedByClass = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the members and owners of a world's entry-denied regions.
+     *
+     * @param deniedRegions the world's entry-denied regions
+     */
+    AccessClassIndex(@NotNull List<ProtectedRegion> deniedRegions) {
+        this.deniedRegions = deniedRegions;
+
+        for (ProtectedRegion region : deniedRegions) {
+            String id = region.getId().toLowerCase();
+            regionsById.put(id, region);
+
+            // Membership is inherited from parent regions
+            boolean indexed = true;
+            for (ProtectedRegion current = region; current != null; current = current.getParent()) {
+                indexed &= indexDomain(id, current.getOwners());
+                indexed &= indexDomain(id, current.getMembers());
+            }
+            if (!indexed) {
+                unindexedRegions.add(region);
+            }
+        }
+    }
+
+    /**
+     * Adds the players of a domain to the membership index.
+     *
+     * @return false if the domain also matches players by name, group or a custom domain,
+     * which have to be checked per player
+     */
+    private boolean indexDomain(@NotNull String regionId, @NotNull DefaultDomain domain) {
+        for (UUID uuid : domain.getUniqueIds()) {
+            memberRegionIds.computeIfAbsent(uuid, k -> new HashSet<>()).add(regionId);
+        }
+        return domain.getPlayers().isEmpty() && domain.getGroups().isEmpty() && domain.getCustomDomains().isEmpty();
+    }
+
+    /**
+     * Gets the entry-denied regions this index was built from.
+     *
+     * @return the regions
+     */
+    @NotNull
+    public List<ProtectedRegion> getDeniedRegions() {
+        return deniedRegions;
+    }
+
+    /**
+     * Gets the number of distinct access classes seen so far.
+     *
+     * @return the class count
+     */
+    public int getClassCount() {
+        return blockedByClass.size();
+    }
+
+    @NotNull
+    Set<String> getAllRegionIds() {
+        return regionsById.keySet();
+    }
+
+    @NotNull
+    Set<String> getMemberRegionIds(@NotNull UUID uuid) {
+        return memberRegionIds.getOrDefault(uuid, Collections.emptySet());
+    }
+
+    /**
+     * Gets the regions whose membership could not be indexed by UUID.
+     */
+    @NotNull
+    List<ProtectedRegion> getUnindexedRegions() {
+        return unindexedRegions;
+    }
+
+    /**
+     * Gets the blocked set of an access class, computing it the first time the class is seen.
+     * The returned set is shared by every player of the class and must not be modified.
+     *
+     * @param bypassedIds the lowercase ids of the denied regions the class can bypass
+     * @return the regions the class cannot enter
+     */
+    @NotNull
+    public Set<ProtectedRegion> getBlockedRegions(@NotNull Set<String> bypassedIds) {
+        return blockedByClass.computeIfAbsent(bypassedIds, ids -> {
+            Set<ProtectedRegion> blocked = new HashSet<>();
+            for (Map.Entry<String, ProtectedRegion> entry : regionsById.entrySet()) {
+                if (!ids.contains(entry.getKey())) {
+                    blocked.add(entry.getValue());
+                }
+            }
+            return Collections.unmodifiableSet(blocked);
+        });
+    }
+}
@@ -0,0 +1,353 @@
+package loganintech.regionforcefield.region;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.domains.DefaultDomain;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.api.ForcefieldService;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link ForcefieldService} registered for other plugins, backed by the per-world access class indexes
+ * the update task builds each cycle and WorldGuard's own spatial index.
+ * <p>
+ * The update task publishes a snapshot of every world it renders each cycle, and the blocked set of every
+ * player it renders, both resolved on the main thread. Queries from other threads only read these snapshots.
+ * Queries on the main thread also index worlds without players, re-index snapshots a few seconds old and
+ * re-resolve players whose blocked set wasn't resolved during the current tick, so permission changes
+ * show up right away.
+ */
+public class CachedForcefieldService implements ForcefieldService {
+
+    private static final long MAX_QUERIED_AGE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /** Radii tried through WorldGuard's index before scanning every blocked region for the nearest one. */
+    private static final int[] NEAREST_SEARCH_RADII = {16, 64, 256};
+
+    private final RegionForcefieldPlugin plugin;
+    private final RegionPermissionChecker permissionChecker;
+    private final Map<UUID, WorldSnapshot> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerAccess> players = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    /**
+     * Creates the service.
+     *
+     * @param plugin            the plugin instance
+     * @param permissionChecker the permission checker that resolves blocked regions
+     */
+    public CachedForcefieldService(@NotNull RegionForcefieldPlugin plugin,
+                                   @NotNull RegionPermissionChecker permissionChecker) {
+        this.plugin = plugin;
+        this.permissionChecker = permissionChecker;
+    }
+
+    /**
+     * Publishes a world's entry-denied regions as resolved by an update cycle. Must be called on the main thread.
+     *
+     * @param world         the world
+     * @param deniedRegions the world's entry-denied regions
+     * @param accessClasses the access class index built from them
+     */
+    public void publish(@NotNull World world, @NotNull List<ProtectedRegion> deniedRegions,
+                        @NotNull AccessClassIndex accessClasses) {
+        store(world, deniedRegions, accessClasses);
+    }
+
+    /**
+     * Publishes the regions a player can't enter in their current world, as resolved by an update cycle.
+     * Must be called on the main thread, after {@link #publish} for the player's world.
+     *
+     * @param player  the player
+     * @param world   the player's world
+     * @param blocked the regions the player can't enter
+     */
+    public void publishPlayer(@NotNull Player player, @NotNull World world, @NotNull Set<ProtectedRegion> blocked) {
+        WorldSnapshot snapshot = worlds.get(world.getUID());
+        if (snapshot != null) {
+            players.put(player.getUniqueId(), new PlayerAccess(world.getUID(), snapshot.version(),
+                plugin.getServer().getCurrentTick(), blocked));
+        }
+    }
+
+    /**
+     * Forgets a player's published access, e.g. when they disconnect.
+     *
+     * @param playerId the player
+     */
+    public void forgetPlayer(@NotNull UUID playerId) {
+        players.remove(playerId);
+    }
+
+    /**
+     * Marks a world's data as changed, e.g. after a region was edited, so the next query re-indexes it.
+     * Edits made through WorldGuard's API are picked up by the next cycle or re-index instead.
+     *
+     * @param world the world
+     */
+    public void invalidate(@NotNull World world) {
+        // The re-indexed snapshot gets a new version, as a world without a snapshot always does
+        worlds.remove(world.getUID());
+        globalVersion.incrementAndGet();
+    }
+
+    @Override
+    public boolean isBlocked(@NotNull Player player, @NotNull Location location) {
+        World world = location.getWorld();
+        Set<ProtectedRegion> blocked = getBlocked(player, world);
+        if (blocked.isEmpty()) {
+            return false;
+        }
+
+        RegionManager regionManager = getRegionManager(world);
+        if (regionManager == null) {
+            return false;
+        }
+        for (ProtectedRegion region : regionManager.getApplicableRegions(BukkitAdapter.asBlockVector(location))) {
+            if (blocked.contains(region)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public List<ProtectedRegion> blockedRegionsNear(@NotNull Player player, @NotNull Location location, double radius) {
+        World world = location.getWorld();
+        Set<ProtectedRegion> blocked = getBlocked(player, world);
+        if (blocked.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<ProtectedRegion> near = new ArrayList<>();
+        RegionManager regionManager = getRegionManager(world);
+        if (regionManager == null) {
+            return near;
+        }
+
+        // Let WorldGuard's index find the candidates instead of measuring every blocked region
+        int reach = (int) Math.ceil(radius);
+        ProtectedCuboidRegion searchBox = new ProtectedCuboidRegion("__forcefield_query__", true,
+            BlockVector3.at(location.getBlockX() - reach, location.getBlockY() - reach, location.getBlockZ() - reach),
+            BlockVector3.at(location.getBlockX() + reach, location.getBlockY() + reach, location.getBlockZ() + reach));
+        for (ProtectedRegion region : regionManager.getApplicableRegions(searchBox)) {
+            if (blocked.contains(region) && distanceSquared(region, location) <= radius * radius) {
+                near.add(region);
+            }
+        }
+        near.sort(Comparator.comparingDouble(region -> distanceSquared(region, location)));
+        return near;
+    }
+
+    @Nullable
+    @Override
+    public ProtectedRegion nearestBlockedRegion(@NotNull Player player, @NotNull Location location) {
+        Set<ProtectedRegion> blocked = getBlocked(player, location.getWorld());
+        if (blocked.isEmpty()) {
+            return null;
+        }
+
+        // Most callers ask about places near a blocked region, so search outwards before scanning them all
+        if (blocked.size() > NEAREST_SEARCH_RADII.length) {
+            for (int radius : NEAREST_SEARCH_RADII) {
+                List<ProtectedRegion> near = blockedRegionsNear(player, location, radius);
+                if (!near.isEmpty()) {
+                    return near.get(0);
+                }
+            }
+        }
+
+        ProtectedRegion nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (ProtectedRegion region : blocked) {
+            double distance = distanceSquared(region, location);
+            if (distance < nearestDistance) {
+                nearest = region;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    @Override
+    public long getVersion(@NotNull World world) {
+        WorldSnapshot snapshot = getSnapshot(world);
+        return snapshot != null ? snapshot.version() : 0;
+    }
+
+    @Override
+    public long getGlobalVersion() {
+        return globalVersion.get();
+    }
+
+    /**
+     * Forgets all snapshots. Versions keep counting up, so cached results are never mistaken for current ones.
+     */
+    public void clear() {
+        worlds.clear();
+        players.clear();
+        globalVersion.incrementAndGet();
+    }
+
+    /**
+     * Gets the regions a player can't enter in a world. Off the main thread this is the blocked set last
+     * published for the player, as permissions and region domains can only be read on the main thread.
+     * On the main thread a blocked set is only reused within the tick it was resolved in.
+     */
+    @NotNull
+    private Set<ProtectedRegion> getBlocked(@NotNull Player player, @Nullable World world) {
+        if (world == null) {
+            return Collections.emptySet();
+        }
+
+        WorldSnapshot snapshot = getSnapshot(world);
+        PlayerAccess access = players.get(player.getUniqueId());
+        boolean published = access != null && access.worldId().equals(world.getUID());
+        if (!plugin.getServer().isPrimaryThread() || snapshot == null) {
+            return published ? access.blocked() : Collections.emptySet();
+        }
+
+        // Permissions can change between cycles without changing the version, so older sets are resolved again
+        if (published && access.version() == snapshot.version()
+            && access.tick() == plugin.getServer().getCurrentTick()) {
+            return access.blocked();
+        }
+
+        Set<ProtectedRegion> blocked = permissionChecker.getBlockedRegions(player, snapshot.accessClasses());
+        if (player.getWorld() == world) {
+            publishPlayer(player, world, blocked);
+        }
+        return blocked;
+    }
+
+    /**
+     * Gets a world's latest snapshot. On the main thread the world is indexed right away if it has no
+     * snapshot or it expired, other threads get whatever was published last.
+     *
+     * @return the snapshot, or null off the main thread if the world has none yet
+     */
+    @Nullable
+    private WorldSnapshot getSnapshot(@NotNull World world) {
+        WorldSnapshot snapshot = worlds.get(world.getUID());
+        if (snapshot != null && System.nanoTime() - snapshot.indexedAt() < MAX_QUERIED_AGE_NANOS) {
+            return snapshot;
+        }
+        if (!plugin.getServer().isPrimaryThread()) {
+            return snapshot;
+        }
+
+        List<ProtectedRegion> deniedRegions = permissionChecker.getEntryDeniedRegions(world);
+        return store(world, deniedRegions, permissionChecker.indexAccessClasses(deniedRegions));
+    }
+
+    /**
+     * Stores a new snapshot of a world, keeping its version unless its regions changed.
+     */
+    @NotNull
+    private WorldSnapshot store(@NotNull World world, @NotNull List<ProtectedRegion> deniedRegions,
+                                @NotNull AccessClassIndex accessClasses) {
+        long fingerprint = fingerprint(deniedRegions);
+        long indexedAt = System.nanoTime();
+        return worlds.compute(world.getUID(), (id, previous) -> {
+            long version = previous != null && previous.fingerprint() == fingerprint
+                ? previous.version() : globalVersion.incrementAndGet();
+            return new WorldSnapshot(version, fingerprint, indexedAt, accessClasses);
+        });
+    }
+
+    /**
+     * Hashes everything query results depend on, independent of the regions' order: each entry-denied region's
+     * id, shape, priority, and the owners and members of it and its parents. Custom domains are compared by
+     * identity, so only replacing one changes the hash.
+     */
+    private static long fingerprint(@NotNull List<ProtectedRegion> deniedRegions) {
+        long hash = deniedRegions.size();
+        for (ProtectedRegion region : deniedRegions) {
+            long regionHash = region.getId().hashCode();
+            regionHash = regionHash * 31 + region.getMinimumPoint().hashCode();
+            regionHash = regionHash * 31 + region.getMaximumPoint().hashCode();
+            regionHash = regionHash * 31 + region.getPoints().hashCode();
+            regionHash = regionHash * 31 + region.getPriority();
+
+            // Membership is inherited from parent regions
+            for (ProtectedRegion current = region; current != null; current = current.getParent()) {
+                regionHash = regionHash * 31 + current.getId().hashCode();
+                regionHash = regionHash * 31 + hashDomain(current.getOwners());
+                regionHash = regionHash * 31 + hashDomain(current.getMembers());
+            }
+            hash += regionHash * 0x9E3779B97F4A7C15L;
+        }
+        return hash;
+    }
+
+    private static long hashDomain(@NotNull DefaultDomain domain) {
+        long hash = domain.getUniqueIds().hashCode();
+        hash = hash * 31 + domain.getPlayers().hashCode();
+        hash = hash * 31 + domain.getGroups().hashCode();
+        return hash * 31 + domain.getCustomDomains().hashCode();
+    }
+
+    @Nullable
+    private RegionManager getRegionManager(@NotNull World world) {
+        try {
+            return WorldGuard.getInstance().getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error reading regions of world " + world.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Gets the squared distance from a location to the nearest point of a region's bounding box.
+     */
+    private static double distanceSquared(@NotNull ProtectedRegion region, @NotNull Location location) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        double dx = location.getX() - Math.max(min.x(), Math.min(max.x() + 1, location.getX()));
+        double dy = location.getY() - Math.max(min.y(), Math.min(max.y() + 1, location.getY()));
+        double dz = location.getZ() - Math.max(min.z(), Math.min(max.z() + 1, location.getZ()));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * A world's access class index and the version results computed from it have.
+     *
+     * @param version     the world's version
+     * @param fingerprint the hash of the denied regions it was built from
+     * @param indexedAt   the {@link System#nanoTime()} it was built at
+     */
+    private record WorldSnapshot(long version, long fingerprint, long indexedAt, @NotNull AccessClassIndex accessClasses) {
+    }
+
+    /**
+     * The regions a player can't enter, resolved on the main thread.
+     *
+     * @param worldId the world they were resolved in
+     * @param version the world's version they were resolved at
+     * @param tick    the server tick they were resolved in
+     * @param blocked the regions the player can't enter
+     */
+    private record PlayerAccess(@NotNull UUID worldId, long version, int tick, @NotNull Set<ProtectedRegion> blocked) {
+    }
+}
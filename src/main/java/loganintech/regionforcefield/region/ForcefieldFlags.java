@@ -0,0 +1,96 @@
+package loganintech.regionforcefield.region;
+
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.flags.DoubleFlag;
+import com.sk89q.worldguard.protection.flags.EnumFlag;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.flags.IntegerFlag;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.flags.registry.FlagConflictException;
+import com.sk89q.worldguard.protection.flags.registry.FlagRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.logging.Logger;
+
+/**
+ * Custom WorldGuard flags for tuning forcefield rendering per region.
+ * <p>
+ * Flags must be registered while the plugin loads, before WorldGuard reads its region files. A flag that
+ * failed to register is left null and the global config value is used instead.
+ */
+public final class ForcefieldFlags {
+
+    /** Set to deny to hide the forcefield of a region entirely. */
+    public static StateFlag RENDER;
+
+    /** Whether a region renders only its edges or its walls too. */
+    public static EnumFlag<WallMode> MODE;
+
+    /** Overrides {@code particle-spacing} for a region. */
+    public static DoubleFlag PARTICLE_SPACING;
+
+    /** Overrides {@code block-spacing} for a region. */
+    public static DoubleFlag BLOCK_SPACING;
+
+    /** Overrides {@code max-render-distance} for a region. */
+    public static IntegerFlag MAX_DISTANCE;
+
+    private ForcefieldFlags() {
+    }
+
+    /**
+     * Registers the flags with WorldGuard. Must be called from the plugin's onLoad.
+     *
+     * @param logger the logger for registration problems
+     */
+    public static void register(@NotNull Logger logger) {
+        try {
+            FlagRegistry registry = WorldGuard.getInstance().getFlagRegistry();
+            RENDER = register(registry, new StateFlag("forcefield-render", true), StateFlag.class, logger);
+            MODE = register(registry, new EnumFlag<>("forcefield-mode", WallMode.class), EnumFlag.class, logger);
+            PARTICLE_SPACING = register(registry, new DoubleFlag("forcefield-particle-spacing"), DoubleFlag.class, logger);
+            BLOCK_SPACING = register(registry, new DoubleFlag("forcefield-block-spacing"), DoubleFlag.class, logger);
+            MAX_DISTANCE = register(registry, new IntegerFlag("forcefield-max-distance"), IntegerFlag.class, logger);
+        } catch (Exception e) {
+            logger.warning("Failed to register forcefield region flags: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Registers a flag, reusing a flag of the same name and type if another plugin (or a reload)
+     * already registered it.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static <T extends Flag<?>> T register(@NotNull FlagRegistry registry, @NotNull T flag,
+                                                  @NotNull Class<? super T> type, @NotNull Logger logger) {
+        try {
+            registry.register(flag);
+            return flag;
+        } catch (FlagConflictException e) {
+            Flag<?> existing = registry.get(flag.getName());
+            if (type.isInstance(existing)) {
+                return (T) existing;
+            }
+            logger.warning("Region flag '" + flag.getName() + "' is already registered by another plugin, ignoring it");
+            return null;
+        } catch (IllegalStateException e) {
+            logger.warning("Region flag '" + flag.getName() + "' could not be registered: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Values of the {@code forcefield-mode} flag.
+     */
+    public enum WallMode {
+
+        /** Only the edges of the region are drawn. */
+        EDGES,
+
+        /** The edges and faces of the region are drawn. */
+        WALLS
+    }
+}
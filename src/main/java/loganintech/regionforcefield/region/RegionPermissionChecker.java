@@ -5,14 +5,20 @@ import com.sk89q.worldguard.LocalPlayer;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import loganintech.regionforcefield.RegionForcefieldPlugin;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,6 +26,8 @@ import java.util.Set;
  */
 public class RegionPermissionChecker {
 
+    private static final String BYPASS_PERMISSION_PREFIX = "worldguard.region.bypass.";
+
     private final RegionForcefieldPlugin plugin;
     private final WorldGuardPlugin worldGuard;
 
@@ -30,7 +38,8 @@ public class RegionPermissionChecker {
      */
     public RegionPermissionChecker(@NotNull RegionForcefieldPlugin plugin) {
         this.plugin = plugin;
-        this.worldGuard = (WorldGuardPlugin) plugin.getServer().getPluginManager().getPlugin("WorldGuard");
+        Plugin worldGuardPlugin = plugin.getServer().getPluginManager().getPlugin("WorldGuard");
+        this.worldGuard = worldGuardPlugin instanceof WorldGuardPlugin ? (WorldGuardPlugin) worldGuardPlugin : null;
     }
 
     /**
@@ -42,7 +51,19 @@ public class RegionPermissionChecker {
      */
     @NotNull
     public Set<ProtectedRegion> getBlockedRegions(@NotNull Player player, @NotNull World world) {
-        Set<ProtectedRegion> blockedRegions = new HashSet<>();
+        return getBlockedRegions(player, getEntryDeniedRegions(world));
+    }
+
+    /**
+     * Gets all regions in a world that deny entry to non-members.
+     * This is the per-world part of the check, so the update task resolves it once per world per cycle.
+     *
+     * @param world the world to get regions for
+     * @return the regions with the ENTRY flag set to deny
+     */
+    @NotNull
+    public List<ProtectedRegion> getEntryDeniedRegions(@NotNull World world) {
+        List<ProtectedRegion> deniedRegions = new ArrayList<>();
 
         try {
             // Get the region manager for this world
@@ -52,9 +73,76 @@ public class RegionPermissionChecker {
                     .get(BukkitAdapter.adapt(world));
 
             if (regionManager == null) {
-                return blockedRegions;
+                return deniedRegions;
+            }
+
+            for (ProtectedRegion region : regionManager.getRegions().values()) {
+                if (isEntryDenied(region)) {
+                    deniedRegions.add(region);
+                }
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error reading regions of world " + world.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return deniedRegions;
+    }
+
+    /**
+     * Gets a region and every region that inherits from it, e.g. to find what an edit of that region affects.
+     *
+     * @param world    the world of the region
+     * @param regionId the region id
+     * @return the region followed by its descendants, or an empty list if the region doesn't exist
+     */
+    @NotNull
+    public List<ProtectedRegion> getRegionWithChildren(@NotNull World world, @NotNull String regionId) {
+        List<ProtectedRegion> regions = new ArrayList<>();
+
+        try {
+            RegionManager regionManager = WorldGuard.getInstance()
+                    .getPlatform()
+                    .getRegionContainer()
+                    .get(BukkitAdapter.adapt(world));
+            ProtectedRegion region = regionManager != null ? regionManager.getRegion(regionId) : null;
+            if (region == null) {
+                return regions;
             }
 
+            regions.add(region);
+            for (ProtectedRegion candidate : regionManager.getRegions().values()) {
+                for (ProtectedRegion parent = candidate.getParent(); parent != null; parent = parent.getParent()) {
+                    if (parent == region) {
+                        regions.add(candidate);
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error reading region " + regionId + " of world " + world.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return regions;
+    }
+
+    /**
+     * Gets the regions out of a set of entry-denied regions that the specified player cannot enter.
+     * Reads permissions and group domains, so it must be called on the main thread.
+     *
+     * @param player        the player to check
+     * @param deniedRegions the world's entry-denied regions, see {@link #getEntryDeniedRegions(World)}
+     * @return a set of regions the player cannot enter
+     */
+    @NotNull
+    public Set<ProtectedRegion> getBlockedRegions(@NotNull Player player, @NotNull Collection<ProtectedRegion> deniedRegions) {
+        Set<ProtectedRegion> blockedRegions = new HashSet<>();
+        if (deniedRegions.isEmpty()) {
+            return blockedRegions;
+        }
+
+        try {
             // Convert Bukkit player to WorldGuard LocalPlayer
             if (worldGuard == null) {
                 plugin.getLogger().warning("WorldGuard plugin reference is null!");
@@ -64,8 +152,8 @@ public class RegionPermissionChecker {
             LocalPlayer localPlayer = worldGuard.wrapPlayer(player);
 
             // Check each region
-            for (ProtectedRegion region : regionManager.getRegions().values()) {
-                if (!canEnterRegion(localPlayer, region)) {
+            for (ProtectedRegion region : deniedRegions) {
+                if (!canBypassRegion(localPlayer, region)) {
                     blockedRegions.add(region);
                     plugin.debug("Player " + player.getName() + " blocked from region: " + region.getId());
                 }
@@ -83,32 +171,112 @@ public class RegionPermissionChecker {
     }
 
     /**
-     * Checks if a player can actually enter a region.
-     * Takes into account entry deny flag, bypass permissions, and member/owner status.
+     * Indexes the access of a world's entry-denied regions, so players with the same access can
+     * share one blocked set. Must be called on the main thread.
      *
-     * @param player the player to check
-     * @param region the region to check
-     * @return true if the player CAN enter (no forcefield), false if blocked (show forcefield)
+     * @param deniedRegions the world's entry-denied regions, see {@link #getEntryDeniedRegions(World)}
+     * @return the access class index for this cycle
+     */
+    @NotNull
+    public AccessClassIndex indexAccessClasses(@NotNull List<ProtectedRegion> deniedRegions) {
+        return new AccessClassIndex(deniedRegions);
+    }
+
+    /**
+     * Gets the regions a player cannot enter, shared with every player of the same access class.
+     * Reads permissions and group domains, which are not thread-safe, so it must be called on the main thread.
+     *
+     * @param player        the player to check
+     * @param accessClasses the world's access class index
+     * @return an unmodifiable set of regions the player cannot enter
      */
-    private boolean canEnterRegion(@NotNull LocalPlayer player, @NotNull ProtectedRegion region) {
-        // Check the ENTRY flag
-        if (region.getFlag(Flags.ENTRY) == com.sk89q.worldguard.protection.flags.StateFlag.State.DENY) {
-            // Check if player has bypass permission (includes ops)
-            if (player.hasPermission("worldguard.region.bypass." + region.getId()) ||
-                player.hasPermission("worldguard.region.bypass.*")) {
-                return true;  // Can enter (has bypass), no forcefield
+    @NotNull
+    public Set<ProtectedRegion> getBlockedRegions(@NotNull Player player, @NotNull AccessClassIndex accessClasses) {
+        if (accessClasses.getDeniedRegions().isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        try {
+            Set<ProtectedRegion> blockedRegions = accessClasses.getBlockedRegions(getBypassedRegionIds(player, accessClasses));
+            if (!blockedRegions.isEmpty()) {
+                plugin.debug("Found " + blockedRegions.size() + " blocked regions for " + player.getName());
             }
+            return blockedRegions;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error checking blocked regions: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptySet();
+        }
+    }
 
-            // Check if the player is a member or owner of the region
-            if (region.isMember(player) || region.isOwner(player)) {
-                return true;  // Can enter (is member/owner), no forcefield
+    /**
+     * Gets the access fingerprint of a player: the ids of the denied regions they can bypass.
+     * Checks the bypass permission of each denied region, and uses the membership index instead of
+     * checking every region's domains. Must be called on the main thread.
+     *
+     * @param player        the player to check
+     * @param accessClasses the world's access class index
+     * @return the lowercase ids of the regions the player can enter
+     */
+    @NotNull
+    protected Set<String> getBypassedRegionIds(@NotNull Player player, @NotNull AccessClassIndex accessClasses) {
+        if (worldGuard == null) {
+            plugin.getLogger().warning("WorldGuard plugin reference is null!");
+            return Collections.emptySet();
+        }
+
+        LocalPlayer localPlayer = worldGuard.wrapPlayer(player);
+
+        // Ops and global bypass can enter everything, so they all share one class
+        if (localPlayer.hasPermission(BYPASS_PERMISSION_PREFIX + "*")) {
+            return accessClasses.getAllRegionIds();
+        }
+
+        Set<String> bypassedIds = new HashSet<>(accessClasses.getMemberRegionIds(player.getUniqueId()));
+
+        // Ask for every denied region, permission plugins may resolve wildcards or contexts inside hasPermission
+        for (ProtectedRegion region : accessClasses.getDeniedRegions()) {
+            if (localPlayer.hasPermission(BYPASS_PERMISSION_PREFIX + region.getId())) {
+                bypassedIds.add(region.getId().toLowerCase());
             }
+        }
+
+        // Regions with name, group or custom members can't be indexed by UUID
+        for (ProtectedRegion region : accessClasses.getUnindexedRegions()) {
+            if (region.isMember(localPlayer) || region.isOwner(localPlayer)) {
+                bypassedIds.add(region.getId().toLowerCase());
+            }
+        }
+
+        return bypassedIds;
+    }
 
-            // Player cannot enter, show forcefield
-            return false;
+    /**
+     * Checks whether a region has its ENTRY flag set to deny.
+     *
+     * @param region the region to check
+     * @return true if non-members are denied entry
+     */
+    private boolean isEntryDenied(@NotNull ProtectedRegion region) {
+        return region.getFlag(Flags.ENTRY) == StateFlag.State.DENY;
+    }
+
+    /**
+     * Checks if a player can enter a region despite its entry deny flag.
+     * Takes into account bypass permissions and member/owner status.
+     *
+     * @param player the player to check
+     * @param region the entry-denied region to check
+     * @return true if the player CAN enter (no forcefield), false if blocked (show forcefield)
+     */
+    private boolean canBypassRegion(@NotNull LocalPlayer player, @NotNull ProtectedRegion region) {
+        // Check if player has bypass permission (includes ops)
+        if (player.hasPermission(BYPASS_PERMISSION_PREFIX + region.getId()) ||
+            player.hasPermission(BYPASS_PERMISSION_PREFIX + "*")) {
+            return true;  // Can enter (has bypass), no forcefield
         }
 
-        // If ENTRY is not explicitly denied, player can enter
-        return true;
+        // Check if the player is a member or owner of the region
+        return region.isMember(player) || region.isOwner(player);
     }
 }
@@ -0,0 +1,189 @@
+package loganintech.regionforcefield.region;
+
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.flags.StateFlag;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import loganintech.regionforcefield.forcefield.ForcefieldSettings;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the rendering settings of each region, derived from the global settings and the region's
+ * forcefield flags.
+ * <p>
+ * A region's flags are read when it is first seen, when it is redefined or edited through {@code /rg},
+ * and every few seconds to pick up flags set by other plugins through WorldGuard's API. Settings are
+ * only rebuilt when the flags or the global settings changed, and worker threads only look them up.
+ */
+public class RegionSettingsCache {
+
+    /** How often all flags of a world are read again, as WorldGuard has no events for flag changes. */
+    private static final long FULL_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Map<UUID, WorldEntries> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Brings a world's cached settings up to date with its regions. Must be called on the main thread before
+     * the regions are rendered. Flags are only read for new, replaced or invalidated regions, or when the
+     * world is due for a full refresh. Regions that are no longer passed in are dropped.
+     *
+     * @param world    the world
+     * @param regions  the regions that may be rendered this cycle
+     * @param settings the global settings snapshot
+     */
+    public void refresh(@NotNull World world, @NotNull Collection<ProtectedRegion> regions,
+                        @NotNull ForcefieldSettings settings) {
+        WorldEntries previous = worlds.get(world.getUID());
+        long now = System.nanoTime();
+        boolean fullRefresh = previous == null || now - previous.readAt() >= FULL_REFRESH_NANOS;
+        if (!fullRefresh && isCurrent(previous.entries(), regions, settings)) {
+            return;
+        }
+
+        Map<String, Entry> previousEntries = previous != null ? previous.entries() : Collections.emptyMap();
+        Map<String, Entry> entries = new HashMap<>();
+        for (ProtectedRegion region : regions) {
+            Entry entry = previousEntries.get(region.getId());
+            Overrides overrides = !fullRefresh && entry != null && entry.region() == region
+                ? entry.overrides() : Overrides.read(region);
+
+            if (entry == null || entry.region() != region || entry.base() != settings
+                || !Objects.equals(entry.overrides(), overrides)) {
+                entry = new Entry(region, overrides, settings, overrides != null ? overrides.apply(settings) : settings);
+            }
+            entries.put(region.getId(), entry);
+        }
+
+        // Publish a new map so worker threads never see one being modified
+        worlds.put(world.getUID(), new WorldEntries(entries, fullRefresh ? now : previous.readAt()));
+    }
+
+    /**
+     * Checks whether the cached entries cover exactly these regions, derived from these settings.
+     */
+    private static boolean isCurrent(@NotNull Map<String, Entry> entries, @NotNull Collection<ProtectedRegion> regions,
+                                     @NotNull ForcefieldSettings settings) {
+        if (entries.size() != regions.size()) {
+            return false;
+        }
+        for (ProtectedRegion region : regions) {
+            Entry entry = entries.get(region.getId());
+            if (entry == null || entry.region() != region || entry.base() != settings) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes the next refresh read a region's flags again, e.g. after it was edited. Must be called on the main thread.
+     *
+     * @param world    the region's world
+     * @param regionId the region id
+     */
+    public void invalidate(@NotNull World world, @NotNull String regionId) {
+        WorldEntries previous = worlds.get(world.getUID());
+        if (previous == null || !previous.entries().containsKey(regionId)) {
+            return;
+        }
+        Map<String, Entry> entries = new HashMap<>(previous.entries());
+        entries.remove(regionId);
+        worlds.put(world.getUID(), new WorldEntries(entries, previous.readAt()));
+    }
+
+    /**
+     * Gets the settings to render a region with.
+     *
+     * @param world    the region's world
+     * @param region   the region
+     * @param settings the global settings snapshot
+     * @return the region's settings, or null if its forcefield is disabled
+     */
+    @Nullable
+    public ForcefieldSettings get(@NotNull World world, @NotNull ProtectedRegion region,
+                                  @NotNull ForcefieldSettings settings) {
+        WorldEntries cached = worlds.get(world.getUID());
+        Entry entry = cached != null ? cached.entries().get(region.getId()) : null;
+        if (entry == null || entry.base() != settings || entry.overrides() == null) {
+            return settings;
+        }
+        return entry.overrides().render() ? entry.settings() : null;
+    }
+
+    /**
+     * Forgets all cached settings.
+     */
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * The forcefield flag values of a region. Null fields are not set on the region.
+     */
+    private record Overrides(boolean render, @Nullable ForcefieldFlags.WallMode mode,
+                             @Nullable Double particleSpacing, @Nullable Double blockSpacing,
+                             @Nullable Integer maxDistance) {
+
+        /**
+         * Reads the flags of a region.
+         *
+         * @return the overrides, or null if the region sets none of the flags
+         */
+        @Nullable
+        private static Overrides read(@NotNull ProtectedRegion region) {
+            if (region.getFlags().isEmpty()) {
+                return null;
+            }
+
+            StateFlag.State render = getFlag(region, ForcefieldFlags.RENDER);
+            ForcefieldFlags.WallMode mode = getFlag(region, ForcefieldFlags.MODE);
+            Double particleSpacing = getFlag(region, ForcefieldFlags.PARTICLE_SPACING);
+            Double blockSpacing = getFlag(region, ForcefieldFlags.BLOCK_SPACING);
+            Integer maxDistance = getFlag(region, ForcefieldFlags.MAX_DISTANCE);
+
+            if (render == null && mode == null && particleSpacing == null && blockSpacing == null && maxDistance == null) {
+                return null;
+            }
+            return new Overrides(render != StateFlag.State.DENY, mode, particleSpacing, blockSpacing, maxDistance);
+        }
+
+        @Nullable
+        private static <V> V getFlag(@NotNull ProtectedRegion region, @Nullable Flag<V> flag) {
+            return flag != null ? region.getFlag(flag) : null;
+        }
+
+        @NotNull
+        private ForcefieldSettings apply(@NotNull ForcefieldSettings settings) {
+            Boolean renderWalls = mode != null ? mode == ForcefieldFlags.WallMode.WALLS : null;
+            return settings.withOverrides(renderWalls, particleSpacing, blockSpacing, maxDistance);
+        }
+    }
+
+    /**
+     * The settings derived for a region, and what they were derived from.
+     *
+     * @param region    the region instance the flags were read from, replaced when the region is redefined
+     * @param overrides the region's flag values, or null if it sets none
+     * @param base      the global settings they were applied to
+     * @param settings  the derived settings
+     */
+    private record Entry(@NotNull ProtectedRegion region, @Nullable Overrides overrides,
+                         @NotNull ForcefieldSettings base, @NotNull ForcefieldSettings settings) {
+    }
+
+    /**
+     * The cached entries of a world and when all of its flags were last read.
+     */
+    private record WorldEntries(@NotNull Map<String, Entry> entries, long readAt) {
+    }
+}
@@ -1,26 +1,95 @@
 package loganintech.regionforcefield.task;
 
 import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.DisplayForcefieldRenderer;
 import loganintech.regionforcefield.forcefield.ForcefieldRenderer;
+import loganintech.regionforcefield.forcefield.ForcefieldSettings;
+import loganintech.regionforcefield.forcefield.HeightmapCache;
+import loganintech.regionforcefield.forcefield.ParticleLevel;
+import loganintech.regionforcefield.forcefield.ParticlePreferences;
+import loganintech.regionforcefield.forcefield.RenderBackend;
+import loganintech.regionforcefield.forcefield.RegionUnion;
+import loganintech.regionforcefield.forcefield.RegionViewerIndex;
+import loganintech.regionforcefield.forcefield.RenderPlan;
+import loganintech.regionforcefield.profile.ForcefieldCycleEvent;
+import loganintech.regionforcefield.profile.ForcefieldPlayerEvent;
+import loganintech.regionforcefield.profile.ForcefieldProfiler;
+import loganintech.regionforcefield.profile.ForcefieldRegionEvent;
+import loganintech.regionforcefield.profile.ForcefieldTraceRecorder;
+import loganintech.regionforcefield.region.AccessClassIndex;
+import loganintech.regionforcefield.region.CachedForcefieldService;
+import loganintech.regionforcefield.region.ForcefieldFlags;
 import loganintech.regionforcefield.region.RegionPermissionChecker;
+import loganintech.regionforcefield.region.RegionSettingsCache;
+import com.destroystokyo.paper.ClientOption;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Periodic task that updates and renders forcefields for all online players.
+ * <p>
+ * Each cycle is partitioned by world. The entry-denied regions of a world are resolved once on the
+ * main thread, then the blocked regions and forcefield geometry of each shard of players are computed
+ * in parallel on a worker pool. The results are merged and sent on the main thread.
+ * <p>
+ * The task runs every tick but only starts a cycle every {@code update-interval-ticks}, so a reload can
+ * change the interval. Reloads are staged as a complete {@link RenderState} and swapped in on a tick
+ * between two cycles.
  */
 public class ForcefieldUpdateTask extends BukkitRunnable {
 
+    /** Teleports shorter than this within a world are left to the regular cycle. */
+    private static final double PREFETCH_MIN_DISTANCE = 16.0;
+
+    /** How far a player may be from a prefetched destination for its plan to still be used. */
+    private static final double ARRIVAL_DISTANCE = 4.0;
+
+    /** Density steps in the fade-in band, the sparsest renders every 2^FADE_LEVELS-th block. */
+    private static final int FADE_LEVELS = 3;
+
     private final RegionForcefieldPlugin plugin;
     private final RegionPermissionChecker permissionChecker;
     private final ForcefieldRenderer forcefieldRenderer;
-    private final int maxRenderDistance;
+    private final DisplayForcefieldRenderer displayRenderer;
+    private final ForcefieldProfiler profiler;
+    private final ForcefieldTraceRecorder tracer;
+    private final RegionSettingsCache regionSettings;
+    private final LoadGovernor governor;
+    private final HeightmapCache heightmaps;
+    private final RegionViewerIndex viewerIndex;
+    private final ParticlePreferences particlePreferences;
+    private final CachedForcefieldService queryService;
+    private final ForkJoinPool workerPool;
+    private final Set<UUID> queuedPlayers = new HashSet<>();
+    private final Map<UUID, Prefetch> prefetches = new HashMap<>();
+    private final Map<UUID, CompletableFuture<List<PlayerResult>>> pendingUpdates = new HashMap<>();
+    private final Map<UUID, ActiveRegions> activeRegions = new ConcurrentHashMap<>();
+    private final AtomicReference<StagedState> stagedState = new AtomicReference<>();
+    private int playersPerShard;
+    private long intervalTicks;
+    private long ticksUntilCycle;
 
     /**
      * Creates a new forcefield update task.
@@ -35,59 +104,679 @@ public class ForcefieldUpdateTask extends BukkitRunnable {
         this.plugin = plugin;
         this.permissionChecker = permissionChecker;
         this.forcefieldRenderer = forcefieldRenderer;
-        this.maxRenderDistance = plugin.getConfig().getInt("max-render-distance", 100);
+        this.displayRenderer = plugin.getDisplayRenderer();
+        this.profiler = plugin.getProfiler();
+        this.tracer = plugin.getTraceRecorder();
+        this.regionSettings = forcefieldRenderer.getRegionSettings();
+        this.governor = new LoadGovernor(plugin);
+        this.heightmaps = forcefieldRenderer.getHeightmaps();
+        this.viewerIndex = forcefieldRenderer.getViewerIndex();
+        this.particlePreferences = plugin.getParticlePreferences();
+        this.queryService = plugin.getQueryService();
+        this.playersPerShard = Math.max(1, plugin.getConfig().getInt("players-per-shard", 16));
+        this.intervalTicks = Math.max(1L, plugin.getConfig().getLong("update-interval-ticks", 20L));
+
+        int threads = plugin.getConfig().getInt("worker-threads", 0);
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        this.workerPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("RegionForcefield-Worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
     }
 
     @Override
     public void run() {
+        // Swapping here, between cycles, means no cycle ever mixes old and new settings
+        applyStagedState();
+
+        if (ticksUntilCycle-- > 0) {
+            return;
+        }
+        ticksUntilCycle = intervalTicks - 1;
+        runCycle();
+    }
+
+    /**
+     * Runs one update cycle for all online players right away, regardless of the interval.
+     * Must be called on the main thread.
+     */
+    public void runCycle() {
+        ForcefieldCycleEvent cycleEvent = new ForcefieldCycleEvent();
+        cycleEvent.begin();
+        long cycleStart = System.nanoTime();
+        int playerCount = 0;
+        int worldCount = 0;
+        int shardCount = 0;
+        long computeNanos = 0;
+        boolean skipped = false;
         try {
-            // Iterate through all online players
+            // Back off when the server is lagging, by skipping cycles and rendering cheaper forcefields
+            governor.update();
+            if (governor.shouldSkipCycle()) {
+                skipped = true;
+                return;
+            }
+
+            // Players rendered now no longer need their queued out-of-cycle update or teleport prefetch
+            queuedPlayers.clear();
+            pendingUpdates.clear();
+            prefetches.clear();
+
+            // Worker threads only see this cycle's settings snapshot
+            ForcefieldSettings settings = governor.apply(forcefieldRenderer.getSettings());
+
+            // Heightmaps can only be read here, build the ones workers asked for last cycle
+            if (settings.isOcclusionCulling()) {
+                heightmaps.buildRequested();
+            }
+
+            // Partition players by world
+            Map<World, List<Player>> playersByWorld = new LinkedHashMap<>();
             for (Player player : plugin.getServer().getOnlinePlayers()) {
-                // Get all regions the player should see forcefields for
-                Set<ProtectedRegion> blockedRegions = permissionChecker.getBlockedRegions(player, player.getWorld());
+                playersByWorld.computeIfAbsent(player.getWorld(), k -> new ArrayList<>()).add(player);
+            }
 
-                if (!blockedRegions.isEmpty()) {
-                    plugin.debug("Processing " + blockedRegions.size() + " blocked regions for " + player.getName());
-                }
+            // Resolve each world's regions once and split its players into shards
+            List<Callable<List<PlayerResult>>> jobs = new ArrayList<>();
+            boolean tracing = tracer.isActive();
+            for (Map.Entry<World, List<Player>> entry : playersByWorld.entrySet()) {
+                List<ProtectedRegion> deniedRegions = permissionChecker.getEntryDeniedRegions(entry.getKey());
+                regionSettings.refresh(entry.getKey(), deniedRegions, settings);
+                AccessClassIndex accessClasses = permissionChecker.indexAccessClasses(deniedRegions);
+                queryService.publish(entry.getKey(), deniedRegions, accessClasses);
 
-                // Collect all blocks that should be rendered for this player
-                Set<Location> allBlocks = new HashSet<>();
-                int rendered = 0;
+                // Capture positions and access here, workers must not touch permissions or region domains
+                List<PlayerSnapshot> players = new ArrayList<>(entry.getValue().size());
+                for (Player player : entry.getValue()) {
+                    PlayerSnapshot snapshot = snapshot(player, player.getLocation(), settings, accessClasses);
+                    queryService.publishPlayer(player, entry.getKey(), snapshot.blockedRegions());
+                    players.add(snapshot);
+                }
 
-                for (ProtectedRegion region : blockedRegions) {
-                    if (isRegionNearPlayer(player, region)) {
-                        Set<Location> regionBlocks = forcefieldRenderer.renderForcefield(player, region, player.getWorld());
-                        allBlocks.addAll(regionBlocks);
-                        rendered++;
+                if (tracing) {
+                    tracer.recordWorld(entry.getKey(), deniedRegions);
+                    for (PlayerSnapshot snapshot : players) {
+                        tracer.recordPlayer(snapshot.player(), snapshot.location());
                     }
                 }
 
-                // Update the player's blocks (remove old ones, keep new ones)
-                forcefieldRenderer.updateBlocks(player, allBlocks);
+                for (int start = 0; start < players.size(); start += playersPerShard) {
+                    List<PlayerSnapshot> shard = players.subList(start, Math.min(players.size(), start + playersPerShard));
+                    jobs.add(() -> computeShard(shard, settings));
+                }
+            }
+
+            worldCount = playersByWorld.size();
+            shardCount = jobs.size();
+            if (tracing) {
+                tracer.endCycle(plugin.getServer().getCurrentTick());
+            }
 
-                if (rendered > 0) {
-                    plugin.debug("Rendered " + rendered + " forcefields (" + allBlocks.size() + " blocks) for " + player.getName());
+            // Compute all shards in parallel, then merge before sending
+            long computeStart = System.nanoTime();
+            List<PlayerResult> results = new ArrayList<>();
+            for (Future<List<PlayerResult>> future : workerPool.invokeAll(jobs)) {
+                try {
+                    results.addAll(future.get());
+                } catch (ExecutionException e) {
+                    plugin.getLogger().warning("Error computing forcefields: " + e.getCause().getMessage());
+                    e.getCause().printStackTrace();
                 }
             }
+            computeNanos = System.nanoTime() - computeStart;
+            playerCount = results.size();
+
+            for (PlayerResult result : results) {
+                sendResult(result, settings);
+            }
+
+            // Sends respect the server-wide cap, this only catches up after it was lowered
+            forcefieldRenderer.evictFarthestBlocks(settings.getMaxBlocksTotal());
+
+            if (profiler.isActive()) {
+                profiler.recordCycle(System.nanoTime() - cycleStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             plugin.getLogger().warning("Error in forcefield update task: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            cycleEvent.finish(playerCount, worldCount, shardCount, computeNanos, governor.getLevel(),
+                governor.getMspt(), skipped);
+        }
+    }
+
+    /**
+     * Captures the position a player is rendered from, the regions they can't enter and their client settings.
+     * Must be called on the main thread.
+     */
+    @NotNull
+    private PlayerSnapshot snapshot(@NotNull Player player, @NotNull Location location,
+                                    @NotNull ForcefieldSettings settings, @NotNull AccessClassIndex accessClasses) {
+        // Permissions and group domains are only safe to read here, the blocked set is shared with the player's class
+        Set<ProtectedRegion> blockedRegions = permissionChecker.getBlockedRegions(player, accessClasses);
+
+        // Players underground can see below the surface, so only cull terrain for players above it
+        boolean aboveSurface = false;
+        if (settings.isOcclusionCulling()) {
+            int surfaceY = heightmaps.getSurfaceYNow(location.getWorld(), location.getBlockX(), location.getBlockZ());
+            aboveSurface = location.getBlockY() >= surfaceY;
+        }
+
+        // Particles the client won't show are never computed or sent
+        ParticleLevel particles = particlePreferences.getLevel(player);
+        int particleRange = (player.getClientOption(ClientOption.VIEW_DISTANCE) + 1) * 16;
+        return new PlayerSnapshot(player, location, blockedRegions, aboveSurface, particles, particleRange);
+    }
+
+    /**
+     * Computes the render plans for a shard of players in the same world.
+     * Runs on a worker thread.
+     */
+    @NotNull
+    private List<PlayerResult> computeShard(@NotNull List<PlayerSnapshot> shard,
+                                            @NotNull ForcefieldSettings settings) {
+        List<PlayerResult> results = new ArrayList<>(shard.size());
+        for (PlayerSnapshot snapshot : shard) {
+            results.add(new PlayerResult(snapshot.player(), computePlan(snapshot, settings)));
+        }
+        return results;
+    }
+
+    /**
+     * Computes the render plan of a single player.
+     */
+    @NotNull
+    private RenderPlan computePlan(@NotNull PlayerSnapshot snapshot, @NotNull ForcefieldSettings settings) {
+        ForcefieldPlayerEvent playerEvent = new ForcefieldPlayerEvent();
+        playerEvent.begin();
+        Player player = snapshot.player();
+        Location location = snapshot.location();
+
+        // All regions the player should see forcefields for, resolved on the main thread
+        Set<ProtectedRegion> blockedRegions = snapshot.blockedRegions();
+
+        if (!blockedRegions.isEmpty()) {
+            plugin.debug("Processing " + blockedRegions.size() + " blocked regions for " + player.getName());
+        }
+
+        // Collect everything that should be rendered for this player
+        RenderPlan plan = new RenderPlan(location.getWorld());
+        if (snapshot.aboveSurface()) {
+            plan.setOcclusion(heightmaps);
+        }
+        if (settings.getHeightBand() > 0) {
+            plan.setHeightBand(location.getY(), settings.getHeightBand());
+        }
+        plan.setParticleLimits(snapshot.particles(), location.getX(), location.getZ(), snapshot.particleRange());
+        boolean displayBackend = settings.getRenderBackend() == RenderBackend.DISPLAY;
+        ActiveRegions active = activeRegions.get(player.getUniqueId());
+        Map<String, Integer> previousStrides = active != null && active.world() == plan.getWorld()
+            ? active.strides() : Collections.emptyMap();
+        List<ProtectedRegion> nearRegions = new ArrayList<>();
+        List<ForcefieldSettings> nearSettings = new ArrayList<>();
+        List<Integer> nearStrides = new ArrayList<>();
+        for (ProtectedRegion region : blockedRegions) {
+            // Regions can tune or disable their forcefield with flags
+            ForcefieldSettings renderSettings = regionSettings.get(plan.getWorld(), region, settings);
+            if (renderSettings == null) {
+                continue;
+            }
+
+            double distance = distanceToRegion(location, region);
+            plugin.debug("Player " + player.getName() + " distance to region: " + String.format("%.1f", distance) + " blocks");
+            int stride = getDensityStride(distance, previousStrides.getOrDefault(region.getId(), 0), renderSettings);
+            if (stride == 0) {
+                continue;
+            }
+
+            if (displayBackend) {
+                // Display entities are built from the region itself, no per-point geometry needed
+                plan.addRegion(region);
+                if (profiler.shouldRecord(player, region.getId())) {
+                    profiler.recordRegion(player, plan.getWorld(), region.getId(), 0, 0, 0);
+                }
+            } else {
+                nearRegions.add(region);
+                nearSettings.add(renderSettings);
+                nearStrides.add(stride);
+            }
+        }
+
+        // Render only the outside of the union, walls shared between regions or inside another one are unreachable
+        Map<ProtectedRegion, List<ProtectedRegion>> neighbours = RegionUnion.findNeighbours(nearRegions);
+        for (int i = 0; i < nearRegions.size(); i++) {
+            ProtectedRegion region = nearRegions.get(i);
+            plan.setUnion(region, neighbours.getOrDefault(region, Collections.emptyList()));
+            plan.setDensityStride(nearStrides.get(i));
+            computeRegion(player, region, plan, nearSettings.get(i));
+        }
+        plan.setUnion(null, Collections.emptyList());
+        plan.setDensityStride(1);
+
+        playerEvent.finish(player.getName(), plan.getWorld().getName(), blockedRegions.size(),
+            plan.getRegionCount(), plan.getBlocks().size(), plan.getParticleCount());
+        return plan;
+    }
+
+    /**
+     * Computes a region's geometry, reporting its cost to the profiler and Flight Recorder when either is listening.
+     */
+    private void computeRegion(@NotNull Player player, @NotNull ProtectedRegion region,
+                               @NotNull RenderPlan plan, @NotNull ForcefieldSettings settings) {
+        ForcefieldRegionEvent regionEvent = new ForcefieldRegionEvent();
+        boolean profiled = profiler.shouldRecord(player, region.getId());
+        if (!profiled && !regionEvent.isEnabled()) {
+            forcefieldRenderer.computeForcefield(region, plan, settings);
+            return;
+        }
+
+        int blocksBefore = plan.getBlocks().size();
+        int particlesBefore = plan.getParticleCount();
+        regionEvent.begin();
+        long start = System.nanoTime();
+        forcefieldRenderer.computeForcefield(region, plan, settings);
+        long nanos = System.nanoTime() - start;
+        regionEvent.end();
+
+        int blocks = plan.getBlocks().size() - blocksBefore;
+        int particles = plan.getParticleCount() - particlesBefore;
+        if (profiled) {
+            profiler.recordRegion(player, plan.getWorld(), region.getId(), nanos, blocks, particles);
+        }
+        regionEvent.finish(player.getName(), region.getId(), blocks, particles);
+    }
+
+    /**
+     * Sends a computed plan to its player. Runs on the main thread.
+     */
+    private void sendResult(@NotNull PlayerResult result, @NotNull ForcefieldSettings settings) {
+        Player player = result.player();
+        if (!player.isOnline()) {
+            activeRegions.remove(player.getUniqueId());
+            return;
+        }
+
+        // Update the player's particles and blocks (remove old ones, keep new ones)
+        RenderPlan plan = result.plan();
+        forcefieldRenderer.sendPlan(player, plan, settings);
+
+        // Display entities replace blocks and particles when that backend is selected
+        if (plan.getWorld() == player.getWorld()) {
+            // What the player sees now decides which regions stay rendered until they are past the exit margin
+            activeRegions.put(player.getUniqueId(), new ActiveRegions(plan.getWorld(), plan.getRegionStrides()));
+            viewerIndex.setRegions(player, plan.getWorld(), plan.getRegions());
+            List<ProtectedRegion> displayRegions = settings.getRenderBackend() == RenderBackend.DISPLAY
+                ? plan.getRegions() : Collections.emptyList();
+            displayRenderer.update(player, displayRegions, settings);
+        }
+
+        if (plan.getRegionCount() > 0) {
+            plugin.debug("Rendered " + plan.getRegionCount() + " forcefields (" + plan.getBlocks().size() +
+                " candidate blocks) for " + player.getName());
+        }
+    }
+
+    /**
+     * Renders the forcefields for a single player and updates their fake blocks. The player is captured
+     * right away, their plan is computed on the worker pool and sent on a later tick. Must be called on
+     * the main thread.
+     *
+     * @param player the player to update
+     */
+    public void updatePlayer(@NotNull Player player) {
+        updatePlayers(player.getWorld(), List.of(player));
+    }
+
+    /**
+     * Renders the forcefields for some players in the same world, resolving the world's regions only once.
+     * Players and access are captured on the main thread, geometry is computed on the worker pool like a
+     * cycle's, and the plans are sent on a later tick unless a cycle or a newer update got there first.
+     */
+    private void updatePlayers(@NotNull World world, @NotNull List<Player> players) {
+        ForcefieldSettings settings = governor.apply(forcefieldRenderer.getSettings());
+        List<ProtectedRegion> deniedRegions = permissionChecker.getEntryDeniedRegions(world);
+        regionSettings.refresh(world, deniedRegions, settings);
+        AccessClassIndex accessClasses = permissionChecker.indexAccessClasses(deniedRegions);
+        queryService.publish(world, deniedRegions, accessClasses);
+        List<PlayerSnapshot> snapshots = new ArrayList<>(players.size());
+        for (Player player : players) {
+            // Chunks arriving after a teleport re-send the prefetched plan instead of computing it again
+            Prefetch prefetch = prefetches.get(player.getUniqueId());
+            RenderPlan prefetched = prefetch != null && hasArrived(player, prefetch) ? prefetch.plan().getNow(null) : null;
+            if (prefetched != null) {
+                pendingUpdates.remove(player.getUniqueId());
+                sendResult(new PlayerResult(player, prefetched), prefetch.settings());
+                continue;
+            }
+
+            PlayerSnapshot snapshot = snapshot(player, player.getLocation(), settings, accessClasses);
+            queryService.publishPlayer(player, world, snapshot.blockedRegions());
+            snapshots.add(snapshot);
+        }
+
+        for (int start = 0; start < snapshots.size(); start += playersPerShard) {
+            List<PlayerSnapshot> shard = snapshots.subList(start, Math.min(snapshots.size(), start + playersPerShard));
+            CompletableFuture<List<PlayerResult>> results =
+                CompletableFuture.supplyAsync(() -> computeShard(shard, settings), workerPool);
+            for (PlayerSnapshot snapshot : shard) {
+                pendingUpdates.put(snapshot.player().getUniqueId(), results);
+            }
+            results.whenComplete((computed, error) -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Error computing queued forcefields: " + error.getMessage());
+                    error.printStackTrace();
+                } else if (plugin.isEnabled()) {
+                    plugin.getServer().getScheduler().runTask(plugin, () -> deliverUpdates(results, computed, settings));
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the plans of queued updates. Players rendered by a cycle or a newer update since then are skipped.
+     */
+    private void deliverUpdates(@NotNull CompletableFuture<List<PlayerResult>> update,
+                                @NotNull List<PlayerResult> results, @NotNull ForcefieldSettings settings) {
+        for (PlayerResult result : results) {
+            if (pendingUpdates.remove(result.player().getUniqueId(), update)) {
+                sendResult(result, settings);
+            }
+        }
+    }
+
+    /**
+     * Re-renders only the players affected by an edit of a region on the next tick: its current viewers,
+     * the viewers of regions inheriting from it, and players near enough to start seeing it.
+     * A deleted region only has its viewers re-rendered, which reverts its fake blocks.
+     *
+     * @param world    the world of the region
+     * @param regionId the id of the edited region
+     */
+    public void queueRegionUpdate(@NotNull World world, @NotNull String regionId) {
+        queryService.invalidate(world);
+        regionSettings.invalidate(world, regionId.toLowerCase());
+        Set<UUID> affected = new HashSet<>(viewerIndex.getViewers(world, regionId));
+        int baseDistance = forcefieldRenderer.getSettings().getMaxRenderDistance();
+
+        for (ProtectedRegion region : permissionChecker.getRegionWithChildren(world, regionId)) {
+            affected.addAll(viewerIndex.getViewers(world, region.getId()));
+
+            // The edit may have moved the region into range or taken away someone's access
+            Integer distanceOverride = ForcefieldFlags.MAX_DISTANCE != null ? region.getFlag(ForcefieldFlags.MAX_DISTANCE) : null;
+            int maxDistance = distanceOverride != null ? Math.max(baseDistance, distanceOverride) : baseDistance;
+            for (Player player : world.getPlayers()) {
+                if (!affected.contains(player.getUniqueId())
+                    && distanceToRegion(player.getLocation(), region) <= maxDistance) {
+                    affected.add(player.getUniqueId());
+                }
+            }
+        }
+
+        plugin.debug("Region " + regionId + " changed, re-rendering " + affected.size() + " players");
+        for (UUID playerId : affected) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null) {
+                queuePlayerUpdate(player);
+            }
         }
     }
 
     /**
-     * Checks if a region is near enough to a player to render.
-     * Calculates distance to the nearest point on the region's bounding box.
+     * Starts computing a player's forcefield at their teleport destination on the worker pool, so it can
+     * be sent the tick they arrive instead of on the next cycle. Short hops within a world are left to
+     * the regular cycle. Must be called on the main thread.
+     *
+     * @param player      the teleporting player
+     * @param destination where they are teleporting to
+     */
+    public void prefetch(@NotNull Player player, @NotNull Location destination) {
+        World world = destination.getWorld();
+        if (world == null || (world == player.getWorld()
+            && destination.distanceSquared(player.getLocation()) < PREFETCH_MIN_DISTANCE * PREFETCH_MIN_DISTANCE)) {
+            return;
+        }
+
+        ForcefieldSettings settings = governor.apply(forcefieldRenderer.getSettings());
+        List<ProtectedRegion> deniedRegions = permissionChecker.getEntryDeniedRegions(world);
+        regionSettings.refresh(world, deniedRegions, settings);
+        AccessClassIndex accessClasses = permissionChecker.indexAccessClasses(deniedRegions);
+        PlayerSnapshot snapshot = snapshot(player, destination.clone(), settings, accessClasses);
+
+        Prefetch prefetch = new Prefetch(destination.clone(), settings,
+            CompletableFuture.supplyAsync(() -> computePlan(snapshot, settings), workerPool));
+        prefetches.put(player.getUniqueId(), prefetch);
+        prefetch.plan().whenComplete((plan, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning("Error prefetching forcefields for " + player.getName() + ": " + error.getMessage());
+                error.printStackTrace();
+            } else if (plugin.isEnabled()) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> deliverPrefetch(player, prefetch));
+            }
+        });
+    }
+
+    /**
+     * Checks whether a teleport prefetch is pending or was delivered for a player since the last cycle.
      *
      * @param player the player
-     * @param region the region
-     * @return true if the region should be rendered for this player
+     * @return true if the player's forcefield at their destination is already taken care of
      */
-    private boolean isRegionNearPlayer(@NotNull Player player, @NotNull ProtectedRegion region) {
+    public boolean hasPrefetch(@NotNull Player player) {
+        return prefetches.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * Sends a prefetched plan once the player has arrived. If the teleport went elsewhere,
+     * the player is rendered normally instead.
+     */
+    private void deliverPrefetch(@NotNull Player player, @NotNull Prefetch prefetch) {
+        if (prefetches.get(player.getUniqueId()) != prefetch || !player.isOnline()) {
+            // A cycle or a newer teleport already replaced it
+            return;
+        }
+
+        if (!hasArrived(player, prefetch)) {
+            prefetches.remove(player.getUniqueId());
+            queuePlayerUpdate(player);
+            return;
+        }
+
+        plugin.debug("Sending prefetched forcefields to " + player.getName() + " after teleport");
+        sendResult(new PlayerResult(player, prefetch.plan().join()), prefetch.settings());
+    }
+
+    /**
+     * Checks whether a player is still where a prefetch was computed for.
+     */
+    private boolean hasArrived(@NotNull Player player, @NotNull Prefetch prefetch) {
+        Location location = player.getLocation();
+        return location.getWorld() == prefetch.destination().getWorld()
+            && location.distanceSquared(prefetch.destination()) <= ARRIVAL_DISTANCE * ARRIVAL_DISTANCE;
+    }
+
+    /**
+     * Queues a player to be captured on the next tick and re-rendered once their plan is computed, instead
+     * of waiting for the next cycle, e.g. when a chunk their forcefield was waiting on arrives.
+     *
+     * @param player the player to update
+     */
+    public void queuePlayerUpdate(@NotNull Player player) {
+        if (queuedPlayers.add(player.getUniqueId()) && queuedPlayers.size() == 1) {
+            plugin.getServer().getScheduler().runTask(plugin, this::flushQueuedUpdates);
+        }
+    }
+
+    /**
+     * Renders all players queued since the last tick.
+     */
+    private void flushQueuedUpdates() {
+        try {
+            Map<World, List<Player>> playersByWorld = new LinkedHashMap<>();
+            for (UUID playerId : queuedPlayers) {
+                Player player = plugin.getServer().getPlayer(playerId);
+                if (player != null) {
+                    playersByWorld.computeIfAbsent(player.getWorld(), k -> new ArrayList<>()).add(player);
+                }
+            }
+
+            for (Map.Entry<World, List<Player>> entry : playersByWorld.entrySet()) {
+                updatePlayers(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("Error in queued forcefield update: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            queuedPlayers.clear();
+        }
+    }
+
+    /**
+     * Reloads the config file into a new render state off the main thread, then swaps it in before
+     * the next cycle. Players keep seeing the old forcefields until then, and their fake blocks are
+     * re-diffed against the new state instead of being cleared.
+     *
+     * @return a future completed on the main thread with the new state once it is in use,
+     * or exceptionally if the config couldn't be loaded
+     */
+    @NotNull
+    public CompletableFuture<RenderState> reload() {
+        CompletableFuture<RenderState> applied = new CompletableFuture<>();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            RenderState state;
+            try {
+                state = RenderState.load(plugin);
+            } catch (Exception e) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> applied.completeExceptionally(e));
+                return;
+            }
+            stage(state, applied);
+        });
+        return applied;
+    }
+
+    /**
+     * Stages a state to be swapped in on the next tick. A state staged earlier but not applied yet
+     * is replaced, and its future completes along with the newer one.
+     */
+    private void stage(@NotNull RenderState state, @NotNull CompletableFuture<RenderState> applied) {
+        StagedState previous = stagedState.getAndSet(new StagedState(state, applied));
+        if (previous != null) {
+            applied.whenComplete((newer, error) -> {
+                if (error != null) {
+                    previous.applied().completeExceptionally(error);
+                } else {
+                    previous.applied().complete(newer);
+                }
+            });
+        }
+    }
+
+    /**
+     * Swaps in a staged render state, if there is one. Runs on the main thread between cycles.
+     */
+    private void applyStagedState() {
+        StagedState staged = stagedState.getAndSet(null);
+        if (staged == null) {
+            return;
+        }
+
+        RenderState state = staged.state();
+        plugin.applyConfig(state.config());
+        forcefieldRenderer.setSettings(state.settings());
+        governor.reload();
+        this.playersPerShard = state.playersPerShard();
+        this.intervalTicks = state.intervalTicks();
+
+        // Show the new state right away instead of waiting out the old interval
+        this.ticksUntilCycle = 0;
+        plugin.debug("Swapped in reloaded render state, update interval " + intervalTicks + " ticks");
+        staged.applied().complete(state);
+    }
+
+    /**
+     * Gets the governor that throttles this task under load.
+     *
+     * @return the load governor
+     */
+    @NotNull
+    public LoadGovernor getGovernor() {
+        return governor;
+    }
+
+    /**
+     * Forgets which regions a player was shown and drops their pending update. Called when the player disconnects.
+     *
+     * @param player the player
+     */
+    public void forgetPlayer(@NotNull Player player) {
+        activeRegions.remove(player.getUniqueId());
+        pendingUpdates.remove(player.getUniqueId());
+    }
+
+    /**
+     * Stops the worker pool. Called when the plugin is disabled.
+     */
+    public void shutdown() {
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * Decides how densely a region is rendered for a player, with hysteresis: a region starts rendering
+     * within the render distance but only stops beyond the exit margin, and its blocks only thin out
+     * again half a fade level past where they got denser.
+     *
+     * @param distance       the player's distance to the region
+     * @param previousStride the stride the region was last sent with, 0 if it wasn't rendered
+     * @param settings       the region's settings
+     * @return the density stride, or 0 if the region isn't rendered
+     */
+    private int getDensityStride(double distance, int previousStride, @NotNull ForcefieldSettings settings) {
+        int enterDistance = settings.getMaxRenderDistance();
+        if (distance > enterDistance + (previousStride > 0 ? settings.getRenderExitMargin() : 0)) {
+            return 0;
+        }
+
+        int stride = getFadeStride(distance, enterDistance, settings.getFadeInDistance());
+        if (previousStride > 0 && stride > previousStride) {
+            // Thinning out reverts blocks, so wait until the player is clearly past the level boundary
+            double levelWidth = (double) settings.getFadeInDistance() / FADE_LEVELS;
+            stride = Math.max(previousStride, getFadeStride(distance - levelWidth / 2, enterDistance,
+                settings.getFadeInDistance()));
+        }
+        return stride;
+    }
+
+    /**
+     * Gets the density stride at a distance: full density inside the fade-in band, then doubling
+     * with every level towards the render distance.
+     */
+    private static int getFadeStride(double distance, int enterDistance, int fadeInDistance) {
+        double fadeStart = enterDistance - fadeInDistance;
+        if (fadeInDistance <= 0 || distance <= fadeStart) {
+            return 1;
+        }
+        int level = (int) Math.ceil((distance - fadeStart) / fadeInDistance * FADE_LEVELS);
+        return 1 << Math.min(FADE_LEVELS, level);
+    }
+
+    /**
+     * Calculates the distance from a location to the nearest point on a region's bounding box.
+     *
+     * @param location the player's location at the start of the cycle
+     * @param region   the region
+     * @return the distance in blocks, 0 inside the bounding box
+     */
+    private double distanceToRegion(@NotNull Location location, @NotNull ProtectedRegion region) {
         // Get player's position
-        double playerX = player.getLocation().getX();
-        double playerY = player.getLocation().getY();
-        double playerZ = player.getLocation().getZ();
+        double playerX = location.getX();
+        double playerY = location.getY();
+        double playerZ = location.getZ();
 
         // Get region bounds
         int minX = region.getMinimumPoint().x();
@@ -103,15 +792,11 @@ public class ForcefieldUpdateTask extends BukkitRunnable {
         double closestZ = clamp(playerZ, minZ, maxZ);
 
         // Calculate distance from player to the closest point on the region
-        double distance = Math.sqrt(
+        return Math.sqrt(
             Math.pow(playerX - closestX, 2) +
             Math.pow(playerY - closestY, 2) +
             Math.pow(playerZ - closestZ, 2)
         );
-
-        plugin.debug("Player " + player.getName() + " distance to region: " + String.format("%.1f", distance) + " blocks");
-
-        return distance <= maxRenderDistance;
     }
 
     /**
@@ -125,4 +810,38 @@ public class ForcefieldUpdateTask extends BukkitRunnable {
     private double clamp(double value, double min, double max) {
         return Math.max(min, Math.min(max, value));
     }
+
+    /**
+     * A player, their location, the regions they can't enter and their particle limits, captured on the
+     * main thread at the start of a cycle. Workers only read the player's name and id from it.
+     */
+    private record PlayerSnapshot(@NotNull Player player, @NotNull Location location,
+                                  @NotNull Set<ProtectedRegion> blockedRegions, boolean aboveSurface,
+                                  @NotNull ParticleLevel particles, int particleRange) {
+    }
+
+    /**
+     * A plan computed ahead of a teleport, with the destination and settings it was computed for.
+     */
+    private record Prefetch(@NotNull Location destination, @NotNull ForcefieldSettings settings,
+                            @NotNull CompletableFuture<RenderPlan> plan) {
+    }
+
+    /**
+     * The regions last sent to a player and the density stride of each, in the world they were sent in.
+     */
+    private record ActiveRegions(@NotNull World world, @NotNull Map<String, Integer> strides) {
+    }
+
+    /**
+     * A reloaded render state waiting for the next tick, and the future to complete once it is in use.
+     */
+    private record StagedState(@NotNull RenderState state, @NotNull CompletableFuture<RenderState> applied) {
+    }
+
+    /**
+     * The render plan computed for a player, waiting to be sent.
+     */
+    private record PlayerResult(@NotNull Player player, @NotNull RenderPlan plan) {
+    }
 }
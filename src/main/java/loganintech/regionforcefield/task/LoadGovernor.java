@@ -0,0 +1,204 @@
+package loganintech.regionforcefield.task;
+
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ForcefieldSettings;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Throttles forcefield work based on the server's tick time (MSPT).
+ * <p>
+ * Between {@code target-mspt} and {@code max-mspt} the governor steps through a few throttle levels. Each
+ * level runs fewer update cycles, widens particle spacing, places fewer blocks and shrinks the render distance. Levels
+ * rise as soon as the tick time does, and drop one at a time after several calm cycles so quality doesn't
+ * flap. Must only be used on the main thread.
+ */
+public class LoadGovernor {
+
+    private static final int MAX_LEVEL = 4;
+    private static final int SHORT_WINDOW_TICKS = 20;
+    private static final int CALM_CYCLES_PER_STEP = 5;
+
+    private final RegionForcefieldPlugin plugin;
+    private boolean enabled;
+    private double targetMspt;
+    private double maxMspt;
+    private int maxIntervalMultiplier;
+    private double maxSpacingMultiplier;
+    private double minDistanceFactor;
+
+    private int level;
+    private int calmCycles;
+    private int skippedCycles;
+    private double mspt;
+    private ForcefieldSettings lastBase;
+    private int lastLevel = -1;
+    private ForcefieldSettings lastGoverned;
+
+    /**
+     * Creates a new governor and reads its config.
+     *
+     * @param plugin the plugin instance
+     */
+    public LoadGovernor(@NotNull RegionForcefieldPlugin plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Re-reads the governor settings from the config.
+     */
+    public void reload() {
+        FileConfiguration config = plugin.getConfig();
+        this.enabled = config.getBoolean("governor.enabled", true);
+        this.targetMspt = config.getDouble("governor.target-mspt", 35.0);
+        this.maxMspt = Math.max(targetMspt + 1.0, config.getDouble("governor.max-mspt", 50.0));
+        this.maxIntervalMultiplier = Math.max(1, config.getInt("governor.max-interval-multiplier", 4));
+        this.maxSpacingMultiplier = Math.max(1.0, config.getDouble("governor.max-spacing-multiplier", 3.0));
+        this.minDistanceFactor = Math.max(0.1, Math.min(1.0, config.getDouble("governor.min-distance-factor", 0.5)));
+
+        if (!enabled) {
+            level = 0;
+        }
+    }
+
+    /**
+     * Samples the tick time and adjusts the throttle level. Called at every scheduled cycle,
+     * including the ones that end up skipped, so the level can recover.
+     */
+    public void update() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            this.mspt = sampleMspt(plugin.getServer());
+        } catch (UnsupportedOperationException e) {
+            plugin.getLogger().warning("Server does not report tick times, disabling the load governor");
+            enabled = false;
+            level = 0;
+            return;
+        }
+
+        double pressure = (mspt - targetMspt) / (maxMspt - targetMspt);
+        int targetLevel = (int) Math.ceil(Math.max(0, Math.min(1, pressure)) * MAX_LEVEL);
+
+        if (targetLevel > level) {
+            if (level == 0) {
+                plugin.getLogger().info(String.format("Server at %.1f ms/tick, throttling forcefields", mspt));
+            }
+            level = targetLevel;
+            calmCycles = 0;
+        } else if (targetLevel < level && ++calmCycles >= CALM_CYCLES_PER_STEP) {
+            level--;
+            calmCycles = 0;
+            if (level == 0) {
+                plugin.getLogger().info(String.format("Server at %.1f ms/tick, forcefields restored", mspt));
+            }
+        } else if (targetLevel == level) {
+            calmCycles = 0;
+        }
+    }
+
+    /**
+     * Gets the tick time to govern by. The 100 tick average keeps quality low until load has really
+     * dropped, and the average of the last second reacts to spikes within a cycle.
+     */
+    private double sampleMspt(@NotNull Server server) {
+        long[] tickTimes = server.getTickTimes();
+        int window = Math.min(SHORT_WINDOW_TICKS, tickTimes.length);
+        if (window == 0) {
+            return server.getAverageTickTime();
+        }
+
+        // Tick times are a ring buffer indexed by tick number
+        int currentTick = server.getCurrentTick();
+        long total = 0;
+        for (int i = 1; i <= window; i++) {
+            total += tickTimes[Math.floorMod(currentTick - i, tickTimes.length)];
+        }
+        double recentMspt = total / (double) window / 1_000_000.0;
+        return Math.max(server.getAverageTickTime(), recentMspt);
+    }
+
+    /**
+     * Checks whether this cycle should be skipped to stretch the update interval.
+     *
+     * @return true if the update task should do nothing this cycle
+     */
+    public boolean shouldSkipCycle() {
+        int interval = getIntervalMultiplier();
+        if (interval <= 1) {
+            skippedCycles = 0;
+            return false;
+        }
+
+        if (++skippedCycles >= interval) {
+            skippedCycles = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the current throttle level to a settings snapshot. The result is reused while neither
+     * the snapshot nor the level changes, so per-region settings stay cached.
+     *
+     * @param base the configured settings
+     * @return the settings to render with
+     */
+    @NotNull
+    public ForcefieldSettings apply(@NotNull ForcefieldSettings base) {
+        if (level == 0) {
+            return base;
+        }
+
+        if (base != lastBase || level != lastLevel) {
+            double factor = level / (double) MAX_LEVEL;
+            double spacingScale = 1 + factor * (maxSpacingMultiplier - 1);
+            double distanceScale = 1 - factor * (1 - minDistanceFactor);
+            // Blocks skip a power of two grid steps, so the blocks kept at one level are kept at the next
+            int blockStride = Integer.highestOneBit((int) spacingScale);
+            lastGoverned = base.scaled(spacingScale, blockStride, distanceScale);
+            lastBase = base;
+            lastLevel = level;
+        }
+        return lastGoverned;
+    }
+
+    /**
+     * Gets how many scheduled cycles make up one update at the current level.
+     *
+     * @return the interval multiplier, 1 when not throttled
+     */
+    public int getIntervalMultiplier() {
+        return 1 + (int) Math.round(level / (double) MAX_LEVEL * (maxIntervalMultiplier - 1));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the current throttle level, from 0 (full quality) to {@link #getMaxLevel()}.
+     *
+     * @return the throttle level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMaxLevel() {
+        return MAX_LEVEL;
+    }
+
+    /**
+     * Gets the tick time sampled by the last update.
+     *
+     * @return the tick time in milliseconds
+     */
+    public double getMspt() {
+        return mspt;
+    }
+}
@@ -0,0 +1,72 @@
+package loganintech.regionforcefield.task;
+
+import loganintech.regionforcefield.RegionForcefieldPlugin;
+import loganintech.regionforcefield.forcefield.ForcefieldSettings;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Everything a config reload changes, built in one piece so it can be prepared off the main thread
+ * and swapped in by {@link ForcefieldUpdateTask} between two cycles.
+ * <p>
+ * The worker pool size is not part of it, changing {@code worker-threads} still needs a restart.
+ *
+ * @param config          the parsed config file
+ * @param settings        the rendering settings derived from it
+ * @param intervalTicks   the ticks between update cycles
+ * @param playersPerShard the players computed per worker job
+ */
+public record RenderState(@NotNull FileConfiguration config, @NotNull ForcefieldSettings settings,
+                          long intervalTicks, int playersPerShard) {
+
+    /**
+     * Reads the plugin's config file from disk and builds a new state from it.
+     * Doesn't touch the live config, so it can run on any thread.
+     *
+     * @param plugin the plugin instance
+     * @return the new state
+     * @throws IOException                   if the config file can't be read
+     * @throws InvalidConfigurationException if the config file is not valid YAML
+     */
+    @NotNull
+    public static RenderState load(@NotNull RegionForcefieldPlugin plugin) throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        File file = new File(plugin.getDataFolder(), "config.yml");
+        if (file.exists()) {
+            config.load(file);
+        }
+
+        // Missing keys fall back to the bundled config, like JavaPlugin#reloadConfig
+        InputStream defaults = plugin.getResource("config.yml");
+        if (defaults != null) {
+            try (Reader reader = new InputStreamReader(defaults, StandardCharsets.UTF_8)) {
+                config.setDefaults(YamlConfiguration.loadConfiguration(reader));
+            }
+        }
+        return fromConfig(config, plugin.getLogger());
+    }
+
+    /**
+     * Builds a state from an already loaded config.
+     *
+     * @param config the config
+     * @param logger the logger to report invalid values to
+     * @return the new state
+     */
+    @NotNull
+    public static RenderState fromConfig(@NotNull FileConfiguration config, @NotNull Logger logger) {
+        return new RenderState(config, ForcefieldSettings.fromConfig(config, logger),
+            Math.max(1L, config.getLong("update-interval-ticks", 20L)),
+            Math.max(1, config.getInt("players-per-shard", 16)));
+    }
+}